@@ -22,9 +22,16 @@ import java.lang.ref.WeakReference;
 import java.util.List;
 import java.util.UUID;
 
+import ovh.karewan.knble.ble.AdaptiveLinkPolicy;
+import ovh.karewan.knble.ble.ConnectionProfile;
 import ovh.karewan.knble.ble.DeviceOperation;
 import ovh.karewan.knble.ble.DevicesManager;
+import ovh.karewan.knble.ble.NotifyBatchSettings;
+import ovh.karewan.knble.ble.ReconnectPolicy;
+import ovh.karewan.knble.ble.RssiMonitor;
 import ovh.karewan.knble.cache.UuidCache;
+import ovh.karewan.knble.interfaces.BleBatchCallback;
+import ovh.karewan.knble.interfaces.BleBatchNotifyCallback;
 import ovh.karewan.knble.interfaces.BleGattCallback;
 import ovh.karewan.knble.interfaces.BleGetCharacteristic;
 import ovh.karewan.knble.interfaces.BleGetDescriptor;
@@ -32,7 +39,10 @@ import ovh.karewan.knble.interfaces.BleGetService;
 import ovh.karewan.knble.interfaces.BleMtuChangedCallback;
 import ovh.karewan.knble.interfaces.BleNotifyCallback;
 import ovh.karewan.knble.interfaces.BlePhyValueCallback;
+import ovh.karewan.knble.interfaces.BlePipelinedWriteCallback;
+import ovh.karewan.knble.interfaces.BlePrepareCallback;
 import ovh.karewan.knble.interfaces.BleReadCallback;
+import ovh.karewan.knble.interfaces.BleReadRssiCallback;
 import ovh.karewan.knble.interfaces.BleScanCallback;
 import ovh.karewan.knble.interfaces.BleSplittedWriteCallback;
 import ovh.karewan.knble.interfaces.BleWriteCallback;
@@ -40,11 +50,18 @@ import ovh.karewan.knble.scan.ScanFilters;
 import ovh.karewan.knble.scan.ScanSettings;
 import ovh.karewan.knble.scan.Scanner;
 import ovh.karewan.knble.struct.BleDevice;
+import ovh.karewan.knble.struct.DataSource;
+import ovh.karewan.knble.struct.NotifyStats;
+import ovh.karewan.knble.struct.ReconnectStats;
 import ovh.karewan.knble.tasks.DisableNotifyTask;
 import ovh.karewan.knble.tasks.EnableNotifyTask;
+import ovh.karewan.knble.tasks.GattBatchTask;
+import ovh.karewan.knble.tasks.PipelinedWriteCharaTask;
 import ovh.karewan.knble.tasks.ReadCharaTask;
 import ovh.karewan.knble.tasks.ReadDescTask;
 import ovh.karewan.knble.tasks.ReadPhyTask;
+import ovh.karewan.knble.tasks.ReadRssiTask;
+import ovh.karewan.knble.tasks.ReliableWriteTask;
 import ovh.karewan.knble.tasks.SplittedWriteCharaTask;
 import ovh.karewan.knble.tasks.UpdateMtuTask;
 import ovh.karewan.knble.tasks.UpdatePhyTask;
@@ -55,9 +72,9 @@ import ovh.karewan.knble.tasks.WriteDescTask;
 public class KnBle {
 	private static volatile KnBle sInstance;
 	public static volatile boolean DEBUG = false;
-	private static final String NOTIFY_DESCRIPTOR_UUID = "00002902-0000-1000-8000-00805f9b34fb";
+	public static volatile boolean POOL_TASKS = false; // Recycle the read / write tasks (less GC churn for high frequency operations)
 	private final Scanner mScanner = new Scanner();
-	private final DevicesManager mDevicesManager = new DevicesManager();
+	private final DevicesManager mDevicesManager = new DevicesManager(mScanner);
 	private final UuidCache mUuidCache = new UuidCache();
 	private WeakReference<Context> mContext;
 	private BluetoothManager mBluetoothManager;
@@ -132,6 +149,15 @@ public class KnBle {
 		return mContext != null && mContext.get() != null;
 	}
 
+	/**
+	 * Get the UUID cache (parsed UUID strings shared by the builders)
+	 * @return UuidCache
+	 */
+	@NonNull
+	public UuidCache getUuidCache() {
+		return mUuidCache;
+	}
+
 	/**
 	 * Return context
 	 * @return Context
@@ -365,6 +391,181 @@ public class KnBle {
 		mDevicesManager.addDevice(device).connect(callback);
 	}
 
+	/**
+	 * Connect to a device and negotiate the profile (priority, MTU, PHY, notifications) before onConnectSuccess
+	 * @param device The device
+	 * @param profile The connection profile
+	 * @param callback The callback
+	 */
+	public void connect(@NonNull BleDevice device, @NonNull ConnectionProfile profile, @NonNull BleGattCallback callback) {
+		if(!isInit()) {
+			Utils.log("KnBle is not init");
+			callback.onDisconnected(true);
+			return;
+		}
+
+		mDevicesManager.addDevice(device).connect(callback, profile);
+	}
+
+	/**
+	 * Get the reason of the last disconnection of a device
+	 * @param device The device
+	 * @return int BleGattCallback.REASON_xxx
+	 */
+	public int getLastDisconnectReason(@NonNull BleDevice device) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		return deviceOp == null ? BleGattCallback.REASON_NONE : deviceOp.getLastDisconnectReason();
+	}
+
+	/**
+	 * Set the adaptive link policy of a device (connection priority and PHY follow the live traffic and the RSSI, null = disabled)
+	 * @param device The device
+	 * @param policy The policy
+	 */
+	public void setAdaptiveLink(@NonNull BleDevice device, @Nullable AdaptiveLinkPolicy policy) {
+		mDevicesManager.addDevice(device).setAdaptiveLink(policy);
+	}
+
+	/**
+	 * Set the RSSI monitor of a device (periodic RSSI reads while connected, null = disabled)
+	 * @param device The device
+	 * @param monitor The monitor
+	 */
+	public void setRssiMonitor(@NonNull BleDevice device, @Nullable RssiMonitor monitor) {
+		mDevicesManager.addDevice(device).setRssiMonitor(monitor);
+	}
+
+	/**
+	 * Get the smoothed RSSI of a device (from the RSSI monitor)
+	 * @param device The device
+	 * @return float (dBm, NaN if unknown)
+	 */
+	public float getSmoothedRssi(@NonNull BleDevice device) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		return deviceOp != null ? deviceOp.getSmoothedRssi() : Float.NaN;
+	}
+
+	/**
+	 * Get the smoothed RSSI history of a device (from the RSSI monitor)
+	 * @param device The device
+	 * @return float[] (oldest first)
+	 */
+	@NonNull
+	public float[] getRssiHistory(@NonNull BleDevice device) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		return deviceOp != null ? deviceOp.getRssiHistory() : new float[0];
+	}
+
+	/**
+	 * Get the link quality of a device (from the RSSI monitor)
+	 * @param device The device
+	 * @return int RssiMonitor.QUALITY_xxx
+	 */
+	public int getLinkQuality(@NonNull BleDevice device) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		return deviceOp != null ? deviceOp.getLinkQuality() : RssiMonitor.QUALITY_UNKNOWN;
+	}
+
+	/**
+	 * Set the reconnect policy of a device (automatic reconnection after a link loss, null = disabled)
+	 * @param device The device
+	 * @param policy The policy
+	 */
+	public void setReconnectPolicy(@NonNull BleDevice device, @Nullable ReconnectPolicy policy) {
+		mDevicesManager.addDevice(device).setReconnectPolicy(policy);
+	}
+
+	/**
+	 * Get the reconnection stats of a device
+	 * @param device The device
+	 * @return ReconnectStats or null if unknown device
+	 */
+	@Nullable
+	public ReconnectStats getReconnectStats(@NonNull BleDevice device) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		return deviceOp == null ? null : deviceOp.getReconnectStats();
+	}
+
+	/**
+	 * Set the scan throttle applied while connections are set up or during bulk transfers (restored afterwards, within the OS scan start budget)
+	 * @param throttle Scanner.THROTTLE_NONE (default), THROTTLE_LOW_DUTY or THROTTLE_PAUSE
+	 */
+	public void setScanCoexistence(int throttle) {
+		mDevicesManager.getScanCoexistence().setThrottle(throttle);
+	}
+
+	/**
+	 * Set the connection limits (ConnectionScheduler.NO_LIMIT by default, the other attempts wait by priority)
+	 * @param maxConnecting Max concurrent connection attempts
+	 * @param maxConnected Max live connections (attempts included)
+	 */
+	public void setConnectionLimits(int maxConnecting, int maxConnected) {
+		mDevicesManager.getScheduler().setLimits(maxConnecting, maxConnected);
+	}
+
+	/**
+	 * Get the count of connection attempts waiting for a slot
+	 * @return int
+	 */
+	public int getQueuedConnectionsCount() {
+		return mDevicesManager.getScheduler().getQueuedCount();
+	}
+
+	/**
+	 * Set the connection pool (idle links closed after the timeout, least recently used idle link closed before a new connection when the max is reached, else the connection is queued, reopened by the next task)
+	 * @param maxLinks Max live links (0 = unlimited)
+	 * @param idleTimeout Idle timeout since the last completed task in ms (0 = never)
+	 */
+	public void setConnectionPool(int maxLinks, long idleTimeout) {
+		mDevicesManager.setConnectionPool(maxLinks, idleTimeout);
+	}
+
+	/**
+	 * Set the max devices waited in background (ConnectionProfile.setWaitForDevice, PendingConnectionPool.DEFAULT_MAX_PENDING by default)
+	 * @param maxPending int
+	 */
+	public void setPendingConnectionsLimit(int maxPending) {
+		mDevicesManager.getPendingPool().setMaxPending(maxPending);
+	}
+
+	/**
+	 * Get the count of devices waited in background
+	 * @return int
+	 */
+	public int getPendingConnectionsCount() {
+		return mDevicesManager.getPendingPool().getRegisteredCount();
+	}
+
+	/**
+	 * Get the time the last connection attempt of a device waited for a slot
+	 * @param device The device
+	 * @return long (ms, -1 if unknown)
+	 */
+	public long getLastConnectWaitTime(@NonNull BleDevice device) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		return deviceOp == null ? -1 : deviceOp.getLastConnectWaitTime();
+	}
+
+	/**
+	 * Set the GATT cache refresh policy of a device (DeviceOperation.CACHE_REFRESH_xxx, default CACHE_REFRESH_ALWAYS)
+	 * @param device The device
+	 * @param policy The policy
+	 */
+	public void setCacheRefreshPolicy(@NonNull BleDevice device, int policy) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		if(deviceOp != null) deviceOp.setCacheRefreshPolicy(policy);
+	}
+
+	/**
+	 * Get the duration of the last services discovery of a device
+	 * @param device The device
+	 * @return long (ms, -1 if unknown)
+	 */
+	public long getLastDiscoveryDuration(@NonNull BleDevice device) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		return deviceOp == null ? -1 : deviceOp.getLastDiscoveryDuration();
+	}
+
 	/**
 	 * Set BleGattCallback of a device
 	 * @param device The device
@@ -421,6 +622,42 @@ public class KnBle {
 		if(deviceOp != null) deviceOp.getCharacteristic(serviceUUID, characteristicUUID, callback);
 	}
 
+	/**
+	 * Prepare a characteristic handle (resolved and validated once, for repeated reads and writes)
+	 * @param device The device
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @param callback The callback
+	 */
+	public void prepare(@NonNull BleDevice device, @NonNull String serviceUUID, @NonNull String characteristicUUID, @NonNull BlePrepareCallback callback) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		if(deviceOp != null) deviceOp.prepare(mUuidCache.get(serviceUUID), mUuidCache.get(characteristicUUID), callback);
+	}
+
+	/**
+	 * Prepare a characteristic handle (resolved and validated once, for repeated reads and writes)
+	 * @param device The device
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @param callback The callback
+	 */
+	public void prepare(@NonNull BleDevice device, @NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, @NonNull BlePrepareCallback callback) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		if(deviceOp != null) deviceOp.prepare(serviceUUID, characteristicUUID, callback);
+	}
+
+	/**
+	 * Prepare a characteristic handle (validated once, for repeated reads and writes)
+	 * @param device The device
+	 * @param service The service
+	 * @param characteristic The characteristic
+	 * @param callback The callback
+	 */
+	public void prepare(@NonNull BleDevice device, @NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, @NonNull BlePrepareCallback callback) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		if(deviceOp != null) deviceOp.prepare(service, characteristic, callback);
+	}
+
 	/**
 	 * Get a descriptor
 	 * @param device The device
@@ -488,6 +725,17 @@ public class KnBle {
 		if(deviceOp != null) deviceOp.enqueueTask(new UpdateMtuTask(mtu, callback));
 	}
 
+	/**
+	 * Read RSSI
+	 * @param device The device
+	 * @param callback Callback
+	 */
+	public void readRssi(@NonNull BleDevice device, @NonNull BleReadRssiCallback callback) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		if(deviceOp != null) deviceOp.enqueueTask(new ReadRssiTask(callback));
+		else callback.onRssiFailed();
+	}
+
 	/**
 	 * Read PHY
 	 * @param device The device
@@ -535,7 +783,7 @@ public class KnBle {
 	 */
 	public void read(@NonNull BleDevice device, @NonNull String serviceUUID, @NonNull String characteristicUUID, @NonNull BleReadCallback callback) {
 		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
-		if(deviceOp != null) deviceOp.enqueueTask(new ReadCharaTask(mUuidCache.get(serviceUUID), mUuidCache.get(characteristicUUID), callback));
+		if(deviceOp != null) deviceOp.enqueueTask(ReadCharaTask.obtain(mUuidCache.get(serviceUUID), mUuidCache.get(characteristicUUID), callback));
 	}
 
 	/**
@@ -547,7 +795,7 @@ public class KnBle {
 	 */
 	public void read(@NonNull BleDevice device, @NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, @NonNull BleReadCallback callback) {
 		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
-		if(deviceOp != null) deviceOp.enqueueTask(new ReadCharaTask(serviceUUID, characteristicUUID, callback));
+		if(deviceOp != null) deviceOp.enqueueTask(ReadCharaTask.obtain(serviceUUID, characteristicUUID, callback));
 	}
 
 	/**
@@ -559,7 +807,43 @@ public class KnBle {
 	 */
 	public void read(@NonNull BleDevice device, @NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, @NonNull BleReadCallback callback) {
 		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
-		if(deviceOp != null) deviceOp.enqueueTask(new ReadCharaTask(service, characteristic, callback));
+		if(deviceOp != null) deviceOp.enqueueTask(ReadCharaTask.obtain(service, characteristic, callback));
+	}
+
+	/**
+	 * Enable the value cache of a characteristic (reads answered from memory, invalidated by writes, service changed and disconnect)
+	 * @param device The device
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @param ttl Time to live in ms (ValueCache.UNTIL_DISCONNECT, 0 to disable)
+	 */
+	public void setValueCache(@NonNull BleDevice device, @NonNull String serviceUUID, @NonNull String characteristicUUID, long ttl) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		if(deviceOp != null) deviceOp.setValueCache(mUuidCache.get(serviceUUID), mUuidCache.get(characteristicUUID), ttl);
+	}
+
+	/**
+	 * Enable the value cache of a characteristic (reads answered from memory, invalidated by writes, service changed and disconnect)
+	 * @param device The device
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @param ttl Time to live in ms (ValueCache.UNTIL_DISCONNECT, 0 to disable)
+	 */
+	public void setValueCache(@NonNull BleDevice device, @NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, long ttl) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		if(deviceOp != null) deviceOp.setValueCache(serviceUUID, characteristicUUID, ttl);
+	}
+
+	/**
+	 * Enable the value cache of a characteristic (reads answered from memory, invalidated by writes, service changed and disconnect)
+	 * @param device The device
+	 * @param service The service
+	 * @param characteristic The characteristic
+	 * @param ttl Time to live in ms (ValueCache.UNTIL_DISCONNECT, 0 to disable)
+	 */
+	public void setValueCache(@NonNull BleDevice device, @NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, long ttl) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		if(deviceOp != null) deviceOp.setValueCache(service.getUuid(), characteristic.getUuid(), ttl);
 	}
 
 	/**
@@ -573,7 +857,7 @@ public class KnBle {
 	 */
 	public void write(@NonNull BleDevice device, @NonNull String serviceUUID, @NonNull String characteristicUUID, @NonNull byte[] data, boolean noResponse, @NonNull BleWriteCallback callback) {
 		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
-		if(deviceOp != null) deviceOp.enqueueTask(new WriteCharaTask(mUuidCache.get(serviceUUID), mUuidCache.get(characteristicUUID), data, noResponse, callback));
+		if(deviceOp != null) deviceOp.enqueueTask(WriteCharaTask.obtain(mUuidCache.get(serviceUUID), mUuidCache.get(characteristicUUID), data, noResponse, callback));
 	}
 
 	/**
@@ -587,7 +871,7 @@ public class KnBle {
 	 */
 	public void write(@NonNull BleDevice device, @NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, @NonNull byte[] data, boolean noResponse, @NonNull BleWriteCallback callback) {
 		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
-		if(deviceOp != null) deviceOp.enqueueTask(new WriteCharaTask(serviceUUID, characteristicUUID, data, noResponse, callback));
+		if(deviceOp != null) deviceOp.enqueueTask(WriteCharaTask.obtain(serviceUUID, characteristicUUID, data, noResponse, callback));
 	}
 
 	/**
@@ -601,7 +885,43 @@ public class KnBle {
 	 */
 	public void write(@NonNull BleDevice device, @NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, @NonNull byte[] data, boolean noResponse, @NonNull BleWriteCallback callback) {
 		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
-		if(deviceOp != null) deviceOp.enqueueTask(new WriteCharaTask(service, characteristic, data, noResponse, callback));
+		if(deviceOp != null) deviceOp.enqueueTask(WriteCharaTask.obtain(service, characteristic, data, noResponse, callback));
+	}
+
+	/**
+	 * Enable or disable the write coalescing of a characteristic (last value wins, a queued write not yet started takes the newer payload and its callback gets onWriteMerged)
+	 * @param device The device
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @param enabled boolean
+	 */
+	public void setWriteCoalescing(@NonNull BleDevice device, @NonNull String serviceUUID, @NonNull String characteristicUUID, boolean enabled) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		if(deviceOp != null) deviceOp.setWriteCoalescing(mUuidCache.get(serviceUUID), mUuidCache.get(characteristicUUID), enabled);
+	}
+
+	/**
+	 * Enable or disable the write coalescing of a characteristic (last value wins, a queued write not yet started takes the newer payload and its callback gets onWriteMerged)
+	 * @param device The device
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @param enabled boolean
+	 */
+	public void setWriteCoalescing(@NonNull BleDevice device, @NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, boolean enabled) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		if(deviceOp != null) deviceOp.setWriteCoalescing(serviceUUID, characteristicUUID, enabled);
+	}
+
+	/**
+	 * Enable or disable the write coalescing of a characteristic (last value wins, a queued write not yet started takes the newer payload and its callback gets onWriteMerged)
+	 * @param device The device
+	 * @param service The service
+	 * @param characteristic The characteristic
+	 * @param enabled boolean
+	 */
+	public void setWriteCoalescing(@NonNull BleDevice device, @NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, boolean enabled) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		if(deviceOp != null) deviceOp.setWriteCoalescing(service.getUuid(), characteristic.getUuid(), enabled);
 	}
 
 	/**
@@ -610,7 +930,7 @@ public class KnBle {
 	 * @param serviceUUID The service UUID
 	 * @param characteristicUUID The characteristic UUID
 	 * @param data The data
-	 * @param splitSize Split into packet of x
+	 * @param splitSize Split into packet of x (0 or less = automatic, MTU - 3; capped to MTU - 3 when noResponse, the stack truncates larger packets)
 	 * @param noResponse Write no response
 	 * @param intervalBetweenTwoPackage Interval between pkg
 	 * @param callback The callback
@@ -626,7 +946,7 @@ public class KnBle {
 	 * @param serviceUUID The service UUID
 	 * @param characteristicUUID The characteristic UUID
 	 * @param data The data
-	 * @param splitSize Split into packet of x
+	 * @param splitSize Split into packet of x (0 or less = automatic, MTU - 3; capped to MTU - 3 when noResponse, the stack truncates larger packets)
 	 * @param noResponse Write no response
 	 * @param intervalBetweenTwoPackage Interval between pkg
 	 * @param callback The callback
@@ -642,7 +962,7 @@ public class KnBle {
 	 * @param service The service
 	 * @param characteristic The characteristic
 	 * @param data The data
-	 * @param splitSize Split into packet of x
+	 * @param splitSize Split into packet of x (0 or less = automatic, MTU - 3; capped to MTU - 3 when noResponse, the stack truncates larger packets)
 	 * @param noResponse Write no response
 	 * @param intervalBetweenTwoPackage Interval between pkg
 	 * @param callback The callback
@@ -653,7 +973,161 @@ public class KnBle {
 	}
 
 	/**
-	 * Enable notify
+	 * Splitted write data from a source into a gatt characteristic (read as the link drains)
+	 * @param device The device
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @param source The data source
+	 * @param splitSize Split into packet of x (0 or less = automatic, MTU - 3; capped to MTU - 3 when noResponse, the stack truncates larger packets)
+	 * @param noResponse Write no response
+	 * @param intervalBetweenTwoPackage Interval between pkg
+	 * @param callback The callback
+	 */
+	public void splittedWrite(@NonNull BleDevice device, @NonNull String serviceUUID, @NonNull String characteristicUUID, @NonNull DataSource source, int splitSize, boolean noResponse, long intervalBetweenTwoPackage, @NonNull BleSplittedWriteCallback callback) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		if(deviceOp != null) deviceOp.enqueueTask(new SplittedWriteCharaTask(mUuidCache.get(serviceUUID), mUuidCache.get(characteristicUUID), source, splitSize, noResponse, intervalBetweenTwoPackage, callback));
+	}
+
+	/**
+	 * Splitted write data from a source into a gatt characteristic (read as the link drains)
+	 * @param device The device
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @param source The data source
+	 * @param splitSize Split into packet of x (0 or less = automatic, MTU - 3; capped to MTU - 3 when noResponse, the stack truncates larger packets)
+	 * @param noResponse Write no response
+	 * @param intervalBetweenTwoPackage Interval between pkg
+	 * @param callback The callback
+	 */
+	public void splittedWrite(@NonNull BleDevice device, @NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, @NonNull DataSource source, int splitSize, boolean noResponse, long intervalBetweenTwoPackage, @NonNull BleSplittedWriteCallback callback) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		if(deviceOp != null) deviceOp.enqueueTask(new SplittedWriteCharaTask(serviceUUID, characteristicUUID, source, splitSize, noResponse, intervalBetweenTwoPackage, callback));
+	}
+
+	/**
+	 * Splitted write data from a source into a gatt characteristic (read as the link drains)
+	 * @param device The device
+	 * @param service The service
+	 * @param characteristic The characteristic
+	 * @param source The data source
+	 * @param splitSize Split into packet of x (0 or less = automatic, MTU - 3; capped to MTU - 3 when noResponse, the stack truncates larger packets)
+	 * @param noResponse Write no response
+	 * @param intervalBetweenTwoPackage Interval between pkg
+	 * @param callback The callback
+	 */
+	public void splittedWrite(@NonNull BleDevice device, @NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, @NonNull DataSource source, int splitSize, boolean noResponse, long intervalBetweenTwoPackage, @NonNull BleSplittedWriteCallback callback) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		if(deviceOp != null) deviceOp.enqueueTask(new SplittedWriteCharaTask(service, characteristic, source, splitSize, noResponse, intervalBetweenTwoPackage, callback));
+	}
+
+	/**
+	 * Pipelined write (no response) data into a gatt characteristic
+	 * @param device The device
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @param data The data
+	 * @param splitSize Split into packet of x (0 or less = automatic, MTU - 3; capped to MTU - 3, the stack truncates larger packets)
+	 * @param callback The callback
+	 */
+	public void pipelinedWrite(@NonNull BleDevice device, @NonNull String serviceUUID, @NonNull String characteristicUUID, @NonNull byte[] data, int splitSize, @NonNull BlePipelinedWriteCallback callback) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		if(deviceOp != null) deviceOp.enqueueTask(new PipelinedWriteCharaTask(mUuidCache.get(serviceUUID), mUuidCache.get(characteristicUUID), data, splitSize, callback));
+	}
+
+	/**
+	 * Pipelined write (no response) data into a gatt characteristic
+	 * @param device The device
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @param data The data
+	 * @param splitSize Split into packet of x (0 or less = automatic, MTU - 3; capped to MTU - 3, the stack truncates larger packets)
+	 * @param callback The callback
+	 */
+	public void pipelinedWrite(@NonNull BleDevice device, @NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, @NonNull byte[] data, int splitSize, @NonNull BlePipelinedWriteCallback callback) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		if(deviceOp != null) deviceOp.enqueueTask(new PipelinedWriteCharaTask(serviceUUID, characteristicUUID, data, splitSize, callback));
+	}
+
+	/**
+	 * Pipelined write (no response) data into a gatt characteristic
+	 * @param device The device
+	 * @param service The service
+	 * @param characteristic The characteristic
+	 * @param data The data
+	 * @param splitSize Split into packet of x (0 or less = automatic, MTU - 3; capped to MTU - 3, the stack truncates larger packets)
+	 * @param callback The callback
+	 */
+	public void pipelinedWrite(@NonNull BleDevice device, @NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, @NonNull byte[] data, int splitSize, @NonNull BlePipelinedWriteCallback callback) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		if(deviceOp != null) deviceOp.enqueueTask(new PipelinedWriteCharaTask(service, characteristic, data, splitSize, callback));
+	}
+
+	/**
+	 * Pipelined write (no response) data from a source into a gatt characteristic (read as the link drains)
+	 * @param device The device
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @param source The data source
+	 * @param splitSize Split into packet of x (0 or less = automatic, MTU - 3; capped to MTU - 3, the stack truncates larger packets)
+	 * @param callback The callback
+	 */
+	public void pipelinedWrite(@NonNull BleDevice device, @NonNull String serviceUUID, @NonNull String characteristicUUID, @NonNull DataSource source, int splitSize, @NonNull BlePipelinedWriteCallback callback) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		if(deviceOp != null) deviceOp.enqueueTask(new PipelinedWriteCharaTask(mUuidCache.get(serviceUUID), mUuidCache.get(characteristicUUID), source, splitSize, callback));
+	}
+
+	/**
+	 * Pipelined write (no response) data from a source into a gatt characteristic (read as the link drains)
+	 * @param device The device
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @param source The data source
+	 * @param splitSize Split into packet of x (0 or less = automatic, MTU - 3; capped to MTU - 3, the stack truncates larger packets)
+	 * @param callback The callback
+	 */
+	public void pipelinedWrite(@NonNull BleDevice device, @NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, @NonNull DataSource source, int splitSize, @NonNull BlePipelinedWriteCallback callback) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		if(deviceOp != null) deviceOp.enqueueTask(new PipelinedWriteCharaTask(serviceUUID, characteristicUUID, source, splitSize, callback));
+	}
+
+	/**
+	 * Pipelined write (no response) data from a source into a gatt characteristic (read as the link drains)
+	 * @param device The device
+	 * @param service The service
+	 * @param characteristic The characteristic
+	 * @param source The data source
+	 * @param splitSize Split into packet of x (0 or less = automatic, MTU - 3; capped to MTU - 3, the stack truncates larger packets)
+	 * @param callback The callback
+	 */
+	public void pipelinedWrite(@NonNull BleDevice device, @NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, @NonNull DataSource source, int splitSize, @NonNull BlePipelinedWriteCallback callback) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		if(deviceOp != null) deviceOp.enqueueTask(new PipelinedWriteCharaTask(service, characteristic, source, splitSize, callback));
+	}
+
+	/**
+	 * Reliable write (all the writes are prepared then executed atomically by the device)
+	 * @param device The device
+	 * @param writes The writes
+	 * @param callback The callback
+	 */
+	public void reliableWrite(@NonNull BleDevice device, @NonNull ReliableWriteTask.Builder writes, @NonNull BleWriteCallback callback) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		if(deviceOp != null) deviceOp.enqueueTask(writes.build(callback));
+	}
+
+	/**
+	 * Batch of operations (enqueued at once, executed back-to-back, single completion with the result of each step)
+	 * @param device The device
+	 * @param batch The batch builder
+	 * @param callback The callback
+	 */
+	public void batch(@NonNull BleDevice device, @NonNull GattBatchTask.Builder batch, @NonNull BleBatchCallback callback) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		if(deviceOp != null) deviceOp.enqueueTask(batch.build(callback));
+	}
+
+	/**
+	 * Enable notify (several subscribers can listen to the same characteristic)
 	 * @param device The device
 	 * @param serviceUUID The service UUID
 	 * @param characteristicUUID The characteristic UUID
@@ -661,11 +1135,11 @@ public class KnBle {
 	 */
 	public void enableNotify(@NonNull BleDevice device, @NonNull String serviceUUID, @NonNull String characteristicUUID, @NonNull BleNotifyCallback callback) {
 		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
-		if(deviceOp != null) deviceOp.enqueueTask(new EnableNotifyTask(mUuidCache.get(serviceUUID), mUuidCache.get(characteristicUUID), mUuidCache.get(NOTIFY_DESCRIPTOR_UUID), callback));
+		if(deviceOp != null) deviceOp.enqueueTask(new EnableNotifyTask(mUuidCache.get(serviceUUID), mUuidCache.get(characteristicUUID), Utils.NOTIFY_DESCRIPTOR_UUID, callback));
 	}
 
 	/**
-	 * Enable notify
+	 * Enable notify (several subscribers can listen to the same characteristic)
 	 * @param device The device
 	 * @param serviceUUID The service UUID
 	 * @param characteristicUUID The characteristic UUID
@@ -673,11 +1147,11 @@ public class KnBle {
 	 */
 	public void enableNotify(@NonNull BleDevice device, @NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, @NonNull BleNotifyCallback callback) {
 		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
-		if(deviceOp != null) deviceOp.enqueueTask(new EnableNotifyTask(serviceUUID, characteristicUUID, mUuidCache.get(NOTIFY_DESCRIPTOR_UUID), callback));
+		if(deviceOp != null) deviceOp.enqueueTask(new EnableNotifyTask(serviceUUID, characteristicUUID, Utils.NOTIFY_DESCRIPTOR_UUID, callback));
 	}
 
 	/**
-	 * Enable notify
+	 * Enable notify (several subscribers can listen to the same characteristic)
 	 * @param device The device
 	 * @param service The service
 	 * @param characteristic The characteristic
@@ -685,40 +1159,141 @@ public class KnBle {
 	 */
 	public void enableNotify(@NonNull BleDevice device, @NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, @NonNull BleNotifyCallback callback) {
 		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
-		if(deviceOp != null) deviceOp.enqueueTask(new EnableNotifyTask(service, characteristic, mUuidCache.get(NOTIFY_DESCRIPTOR_UUID), callback));
+		if(deviceOp != null) deviceOp.enqueueTask(new EnableNotifyTask(service, characteristic, Utils.NOTIFY_DESCRIPTOR_UUID, callback));
+	}
+
+	/**
+	 * Enable batched notify (the values are delivered by batches on the settings executor)
+	 * @param device The device
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @param settings The batch settings
+	 * @param callback The call back
+	 */
+	public void enableNotify(@NonNull BleDevice device, @NonNull String serviceUUID, @NonNull String characteristicUUID, @NonNull NotifyBatchSettings settings, @NonNull BleBatchNotifyCallback callback) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		if(deviceOp != null) deviceOp.enqueueTask(new EnableNotifyTask(mUuidCache.get(serviceUUID), mUuidCache.get(characteristicUUID), Utils.NOTIFY_DESCRIPTOR_UUID, settings, callback));
+	}
+
+	/**
+	 * Enable batched notify (the values are delivered by batches on the settings executor)
+	 * @param device The device
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @param settings The batch settings
+	 * @param callback The call back
+	 */
+	public void enableNotify(@NonNull BleDevice device, @NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, @NonNull NotifyBatchSettings settings, @NonNull BleBatchNotifyCallback callback) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		if(deviceOp != null) deviceOp.enqueueTask(new EnableNotifyTask(serviceUUID, characteristicUUID, Utils.NOTIFY_DESCRIPTOR_UUID, settings, callback));
+	}
+
+	/**
+	 * Enable batched notify (the values are delivered by batches on the settings executor)
+	 * @param device The device
+	 * @param service The service
+	 * @param characteristic The characteristic
+	 * @param settings The batch settings
+	 * @param callback The call back
+	 */
+	public void enableNotify(@NonNull BleDevice device, @NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, @NonNull NotifyBatchSettings settings, @NonNull BleBatchNotifyCallback callback) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		if(deviceOp != null) deviceOp.enqueueTask(new EnableNotifyTask(service, characteristic, Utils.NOTIFY_DESCRIPTOR_UUID, settings, callback));
 	}
 
 	/**
-	 * Disable notify
+	 * Disable notify (all the subscribers)
 	 * @param device The device
 	 * @param serviceUUID The service UUID
 	 * @param characteristicUUID The characteristic UUID
 	 */
 	public void disableNotify(@NonNull BleDevice device, @NonNull String serviceUUID, @NonNull String characteristicUUID) {
 		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
-		if(deviceOp != null) deviceOp.enqueueTask(new DisableNotifyTask(mUuidCache.get(serviceUUID), mUuidCache.get(characteristicUUID), mUuidCache.get(NOTIFY_DESCRIPTOR_UUID)));
+		if(deviceOp != null) deviceOp.enqueueTask(new DisableNotifyTask(mUuidCache.get(serviceUUID), mUuidCache.get(characteristicUUID), Utils.NOTIFY_DESCRIPTOR_UUID));
 	}
 
 	/**
-	 * Disable notify
+	 * Disable notify (all the subscribers)
 	 * @param device The device
 	 * @param serviceUUID The service UUID
 	 * @param characteristicUUID The characteristic UUID
 	 */
 	public void disableNotify(@NonNull BleDevice device, @NonNull UUID serviceUUID, @NonNull UUID characteristicUUID) {
 		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
-		if(deviceOp != null) deviceOp.enqueueTask(new DisableNotifyTask(serviceUUID, characteristicUUID, mUuidCache.get(NOTIFY_DESCRIPTOR_UUID)));
+		if(deviceOp != null) deviceOp.enqueueTask(new DisableNotifyTask(serviceUUID, characteristicUUID, Utils.NOTIFY_DESCRIPTOR_UUID));
 	}
 
 	/**
-	 * Disable notify
+	 * Disable notify (all the subscribers)
 	 * @param device The device
 	 * @param service The service
 	 * @param characteristic The characteristic
 	 */
 	public void disableNotify(@NonNull BleDevice device, @NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic) {
 		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
-		if(deviceOp != null) deviceOp.enqueueTask(new DisableNotifyTask(service, characteristic, mUuidCache.get(NOTIFY_DESCRIPTOR_UUID)));
+		if(deviceOp != null) deviceOp.enqueueTask(new DisableNotifyTask(service, characteristic, Utils.NOTIFY_DESCRIPTOR_UUID));
+	}
+
+	/**
+	 * Disable notify for a single subscriber (the notification is disabled when the last one leaves)
+	 * @param device The device
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @param callback The subscriber callback
+	 */
+	public void disableNotify(@NonNull BleDevice device, @NonNull String serviceUUID, @NonNull String characteristicUUID, @NonNull BleNotifyCallback callback) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		if(deviceOp != null) deviceOp.enqueueTask(new DisableNotifyTask(mUuidCache.get(serviceUUID), mUuidCache.get(characteristicUUID), Utils.NOTIFY_DESCRIPTOR_UUID, callback));
+	}
+
+	/**
+	 * Disable notify for a single subscriber (the notification is disabled when the last one leaves)
+	 * @param device The device
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @param callback The subscriber callback
+	 */
+	public void disableNotify(@NonNull BleDevice device, @NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, @NonNull BleNotifyCallback callback) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		if(deviceOp != null) deviceOp.enqueueTask(new DisableNotifyTask(serviceUUID, characteristicUUID, Utils.NOTIFY_DESCRIPTOR_UUID, callback));
+	}
+
+	/**
+	 * Disable notify for a single subscriber (the notification is disabled when the last one leaves)
+	 * @param device The device
+	 * @param service The service
+	 * @param characteristic The characteristic
+	 * @param callback The subscriber callback
+	 */
+	public void disableNotify(@NonNull BleDevice device, @NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, @NonNull BleNotifyCallback callback) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		if(deviceOp != null) deviceOp.enqueueTask(new DisableNotifyTask(service, characteristic, Utils.NOTIFY_DESCRIPTOR_UUID, callback));
+	}
+
+	/**
+	 * Get the notification stats (received, dropped, rate) of a characteristic
+	 * @param device The device
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @return NotifyStats|null
+	 */
+	@Nullable
+	public NotifyStats getNotifyStats(@NonNull BleDevice device, @NonNull String serviceUUID, @NonNull String characteristicUUID) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		return deviceOp == null ? null : deviceOp.getNotifyStats(mUuidCache.get(serviceUUID), mUuidCache.get(characteristicUUID));
+	}
+
+	/**
+	 * Get the notification stats (received, dropped, rate) of a characteristic
+	 * @param device The device
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @return NotifyStats|null
+	 */
+	@Nullable
+	public NotifyStats getNotifyStats(@NonNull BleDevice device, @NonNull UUID serviceUUID, @NonNull UUID characteristicUUID) {
+		DeviceOperation deviceOp = mDevicesManager.getDeviceOp(device);
+		return deviceOp == null ? null : deviceOp.getNotifyStats(serviceUUID, characteristicUUID);
 	}
 
 	/**
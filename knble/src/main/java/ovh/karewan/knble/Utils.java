@@ -13,6 +13,11 @@ import java.util.UUID;
 
 @SuppressWarnings("MissingPermission")
 public class Utils {
+	/**
+	 * Client characteristic configuration descriptor (enables the notifications / indications)
+	 */
+	public static final UUID NOTIFY_DESCRIPTOR_UUID = UUID.fromString("00002902-0000-1000-8000-00805f9b34fb");
+
 	/**
 	 * Log (when DEBUG == true)
 	 * @param msg String
@@ -67,32 +72,20 @@ public class Utils {
 	 * @param data The data
 	 * @param spliteSize Packet size
 	 * @param queue Queue
+	 * @deprecated Copies the whole data upfront, the splitted writes now chunk lazily (SplittedWriteCharaTask)
 	 */
+	@Deprecated
 	public static void splitBytesArrayAndFillQueue(@NonNull byte[] data, int spliteSize, @NonNull Queue<byte[]> queue) {
-		int pkgCount;
-
-		if (data.length % spliteSize == 0) {
-			pkgCount = data.length / spliteSize;
-		} else {
-			pkgCount = Math.round((float) (data.length / spliteSize + 1));
+		if(data.length == 0 || spliteSize <= 0) {
+			queue.offer(data);
+			return;
 		}
 
-		if (pkgCount > 0) {
-			for (int i = 0; i < pkgCount; i++) {
-				byte[] dataPkg;
-				int j;
-
-				if (pkgCount == 1 || i == pkgCount - 1) {
-					j = data.length % spliteSize == 0 ? spliteSize : data.length % spliteSize;
-					System.arraycopy(data, i * spliteSize, dataPkg = new byte[j], 0, j);
-				} else {
-					System.arraycopy(data, i * spliteSize, dataPkg = new byte[spliteSize], 0, spliteSize);
-				}
-
-				queue.offer(dataPkg);
-			}
-		} else {
-			queue.offer(data);
+		for(int offset = 0; offset < data.length; offset += spliteSize) {
+			int length = Math.min(spliteSize, data.length - offset);
+			byte[] dataPkg = new byte[length];
+			System.arraycopy(data, offset, dataPkg, 0, length);
+			queue.offer(dataPkg);
 		}
 	}
 
@@ -0,0 +1,150 @@
+package ovh.karewan.knble.ble;
+
+import android.bluetooth.BluetoothGatt;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Adaptive link settings (connection priority and PHY follow the live traffic and the RSSI)
+ */
+public class AdaptiveLinkPolicy {
+	/**
+	 * RSSI threshold disabled
+	 */
+	public static final int RSSI_DISABLED = Integer.MIN_VALUE;
+
+	private final long mCheckInterval;
+	private final long mBulkBytes;
+	private final float mBulkNotifyRate;
+	private final long mIdleDelay;
+	private final int mIdlePriority;
+	private final boolean mUse2MPhy;
+	private final int mCodedPhyRssi;
+	private final int mRssiHysteresis;
+	private final long mRssiInterval;
+
+	private AdaptiveLinkPolicy(@NonNull Builder builder) {
+		mCheckInterval = builder.mCheckInterval;
+		mBulkBytes = builder.mBulkBytes;
+		mBulkNotifyRate = builder.mBulkNotifyRate;
+		mIdleDelay = builder.mIdleDelay;
+		mIdlePriority = builder.mIdlePriority;
+		mUse2MPhy = builder.mUse2MPhy;
+		mCodedPhyRssi = builder.mCodedPhyRssi;
+		mRssiHysteresis = builder.mRssiHysteresis;
+		mRssiInterval = builder.mRssiInterval;
+	}
+
+	public long getCheckInterval() {
+		return mCheckInterval;
+	}
+
+	public long getBulkBytes() {
+		return mBulkBytes;
+	}
+
+	public float getBulkNotifyRate() {
+		return mBulkNotifyRate;
+	}
+
+	public long getIdleDelay() {
+		return mIdleDelay;
+	}
+
+	public int getIdlePriority() {
+		return mIdlePriority;
+	}
+
+	public boolean isUse2MPhy() {
+		return mUse2MPhy;
+	}
+
+	public int getCodedPhyRssi() {
+		return mCodedPhyRssi;
+	}
+
+	public int getRssiHysteresis() {
+		return mRssiHysteresis;
+	}
+
+	public long getRssiInterval() {
+		return mRssiInterval;
+	}
+
+	/**
+	 * Builder
+	 */
+	public static final class Builder {
+		private long mCheckInterval = 1000;
+		private long mBulkBytes = 512;
+		private float mBulkNotifyRate = 20f;
+		private long mIdleDelay = 3000;
+		private int mIdlePriority = BluetoothGatt.CONNECTION_PRIORITY_BALANCED;
+		private boolean mUse2MPhy = true;
+		private int mCodedPhyRssi = RSSI_DISABLED;
+		private int mRssiHysteresis = 6;
+		private long mRssiInterval = 5000;
+
+		/**
+		 * Traffic check interval (ms)
+		 * @param checkInterval long
+		 * @return Builder
+		 */
+		public Builder setCheckInterval(long checkInterval) {
+			this.mCheckInterval = Math.max(100, checkInterval);
+			return this;
+		}
+
+		/**
+		 * Bulk activity when the queued writes reach this size or the notification rate reaches this rate
+		 * @param bulkBytes long (bytes)
+		 * @param bulkNotifyRate float (Hz, all the characteristics)
+		 * @return Builder
+		 */
+		public Builder setBulkThresholds(long bulkBytes, float bulkNotifyRate) {
+			this.mBulkBytes = bulkBytes;
+			this.mBulkNotifyRate = bulkNotifyRate;
+			return this;
+		}
+
+		/**
+		 * Back to the idle priority after this time without bulk activity (hysteresis)
+		 * @param idleDelay long (ms)
+		 * @param idlePriority BluetoothGatt.CONNECTION_PRIORITY_BALANCED or CONNECTION_PRIORITY_LOW_POWER
+		 * @return Builder
+		 */
+		public Builder setIdle(long idleDelay, int idlePriority) {
+			this.mIdleDelay = Math.max(0, idleDelay);
+			this.mIdlePriority = idlePriority;
+			return this;
+		}
+
+		/**
+		 * Request the 2M PHY during bulk activity (Android 8+)
+		 * @param use2MPhy boolean
+		 * @return Builder
+		 */
+		public Builder setUse2MPhy(boolean use2MPhy) {
+			this.mUse2MPhy = use2MPhy;
+			return this;
+		}
+
+		/**
+		 * Switch to the coded PHY when the RSSI falls below the threshold, back when it rises above threshold + hysteresis (Android 8+)
+		 * @param codedPhyRssi int (dBm, RSSI_DISABLED = never)
+		 * @param rssiHysteresis int (dB)
+		 * @param rssiInterval RSSI read interval (ms)
+		 * @return Builder
+		 */
+		public Builder setCodedPhy(int codedPhyRssi, int rssiHysteresis, long rssiInterval) {
+			this.mCodedPhyRssi = codedPhyRssi;
+			this.mRssiHysteresis = Math.max(0, rssiHysteresis);
+			this.mRssiInterval = Math.max(100, rssiInterval);
+			return this;
+		}
+
+		public AdaptiveLinkPolicy build() {
+			return new AdaptiveLinkPolicy(this);
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package ovh.karewan.knble.ble;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattService;
+
+import androidx.annotation.NonNull;
+
+import ovh.karewan.knble.cache.GattIndex;
+import ovh.karewan.knble.interfaces.BleReadCallback;
+import ovh.karewan.knble.interfaces.BleWriteCallback;
+import ovh.karewan.knble.tasks.ReadCharaTask;
+import ovh.karewan.knble.tasks.WriteCharaTask;
+
+/**
+ * Prepared characteristic (resolved and validated once, reusable until the services change or the device disconnect)
+ */
+public final class CharacteristicHandle {
+	private final DeviceOperation mDeviceOp;
+	private final GattIndex mIndex;
+	private final BluetoothGattService mService;
+	private final BluetoothGattCharacteristic mCharacteristic;
+	private final int mProperties;
+	private final int mWriteType;
+	private final int mWriteNoResponseType;
+
+	CharacteristicHandle(@NonNull DeviceOperation deviceOp, @NonNull GattIndex index, @NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic) {
+		mDeviceOp = deviceOp;
+		mIndex = index;
+		mService = service;
+		mCharacteristic = characteristic;
+		mProperties = characteristic.getProperties();
+		mWriteType = DeviceOperation.getWriteType(characteristic, false);
+		mWriteNoResponseType = DeviceOperation.getWriteType(characteristic, true);
+	}
+
+	@NonNull
+	public BluetoothGattService getService() {
+		return mService;
+	}
+
+	@NonNull
+	public BluetoothGattCharacteristic getCharacteristic() {
+		return mCharacteristic;
+	}
+
+	public int getProperties() {
+		return mProperties;
+	}
+
+	public boolean canRead() {
+		return (mProperties & BluetoothGattCharacteristic.PROPERTY_READ) != 0;
+	}
+
+	public boolean canWrite() {
+		return mWriteType != WriteCharaTask.WRITE_TYPE_AUTO;
+	}
+
+	public boolean canNotify() {
+		return (mProperties & (BluetoothGattCharacteristic.PROPERTY_NOTIFY | BluetoothGattCharacteristic.PROPERTY_INDICATE)) != 0;
+	}
+
+	/**
+	 * Check if the handle is still valid (same connection and services)
+	 * @return boolean
+	 */
+	public boolean isValid() {
+		return mDeviceOp.getIndex() == mIndex;
+	}
+
+	/**
+	 * Write (with response if supported)
+	 * @param data The data
+	 * @param callback The callback
+	 */
+	public void write(@NonNull byte[] data, @NonNull BleWriteCallback callback) {
+		write(data, false, callback);
+	}
+
+	/**
+	 * Write
+	 * @param data The data
+	 * @param noResponse Write without response (corrected if not supported)
+	 * @param callback The callback
+	 */
+	public void write(@NonNull byte[] data, boolean noResponse, @NonNull BleWriteCallback callback) {
+		int writeType = noResponse ? mWriteNoResponseType : mWriteType;
+		if(writeType == WriteCharaTask.WRITE_TYPE_AUTO || !isValid()) {
+			callback.onWriteFailed();
+			return;
+		}
+
+		mDeviceOp.enqueueTask(WriteCharaTask.obtain(mService, mCharacteristic, data, writeType, callback));
+	}
+
+	/**
+	 * Read
+	 * @param callback The callback
+	 */
+	public void read(@NonNull BleReadCallback callback) {
+		if(!canRead() || !isValid()) {
+			callback.onReadFailed();
+			return;
+		}
+
+		mDeviceOp.enqueueTask(ReadCharaTask.obtain(mService, mCharacteristic, callback));
+	}
+}
@@ -0,0 +1,259 @@
+package ovh.karewan.knble.ble;
+
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import ovh.karewan.knble.KnBle;
+import ovh.karewan.knble.interfaces.BleBatchCallback;
+import ovh.karewan.knble.interfaces.BleConnectionStageListener;
+import ovh.karewan.knble.interfaces.BleNotifyCallback;
+import ovh.karewan.knble.tasks.GattBatchTask;
+
+/**
+ * Connection bring-up profile (negotiated right after the services discovery, before onConnectSuccess)
+ */
+public class ConnectionProfile {
+	/**
+	 * Stages
+	 */
+	public static final int STAGE_CONNECT = 0;
+	public static final int STAGE_DISCOVERY = 1;
+	public static final int STAGE_PRIORITY = 2;
+	public static final int STAGE_MTU = 3;
+	public static final int STAGE_PHY = 4;
+	public static final int STAGE_NOTIFY = 5;
+	public static final int STAGE_READY = 6;
+
+	private final int mMtu;
+	private final int mTxPhy;
+	private final int mRxPhy;
+	private final int mPhyOptions;
+	private final int mConnectionPriority;
+	private final int mSchedulingPriority;
+	private final long mConnectTimeout;
+	private final long mDiscoveryTimeout;
+	private final boolean mWaitForDevice;
+	private final List<Notify> mNotifications;
+	private final BleConnectionStageListener mStageListener;
+
+	private static final class Notify {
+		final UUID serviceUUID;
+		final UUID characteristicUUID;
+		final BleNotifyCallback callback;
+
+		Notify(@NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, @NonNull BleNotifyCallback callback) {
+			this.serviceUUID = serviceUUID;
+			this.characteristicUUID = characteristicUUID;
+			this.callback = callback;
+		}
+	}
+
+	private ConnectionProfile(@NonNull Builder builder) {
+		mMtu = builder.mMtu;
+		mTxPhy = builder.mTxPhy;
+		mRxPhy = builder.mRxPhy;
+		mPhyOptions = builder.mPhyOptions;
+		mConnectionPriority = builder.mConnectionPriority;
+		mSchedulingPriority = builder.mSchedulingPriority;
+		mConnectTimeout = builder.mConnectTimeout;
+		mDiscoveryTimeout = builder.mDiscoveryTimeout;
+		mWaitForDevice = builder.mWaitForDevice;
+		mNotifications = new ArrayList<>(builder.mNotifications);
+		mStageListener = builder.mStageListener;
+	}
+
+	public int getMtu() {
+		return mMtu;
+	}
+
+	public int getConnectionPriority() {
+		return mConnectionPriority;
+	}
+
+	public int getSchedulingPriority() {
+		return mSchedulingPriority;
+	}
+
+	public long getConnectTimeout() {
+		return mConnectTimeout;
+	}
+
+	public long getDiscoveryTimeout() {
+		return mDiscoveryTimeout;
+	}
+
+	public boolean isWaitForDevice() {
+		return mWaitForDevice;
+	}
+
+	@Nullable
+	public BleConnectionStageListener getStageListener() {
+		return mStageListener;
+	}
+
+	/**
+	 * Report a stage
+	 * @param stage The stage
+	 * @param success The result
+	 * @param duration The duration (ms)
+	 */
+	void onStage(int stage, boolean success, long duration) {
+		if(mStageListener != null) mStageListener.onStage(stage, success, duration);
+	}
+
+	/**
+	 * Build the bring-up batch (priority first to speed up the next steps, then MTU, PHY and notifications)
+	 * @param callback The batch callback
+	 * @return GattBatchTask or null if nothing to negotiate
+	 */
+	@Nullable
+	GattBatchTask buildBatch(@NonNull BleBatchCallback callback) {
+		List<Integer> stages = new ArrayList<>();
+		GattBatchTask.Builder batch = new GattBatchTask.Builder();
+
+		if(mConnectionPriority >= 0) {
+			batch.requestConnectionPriority(mConnectionPriority);
+			stages.add(STAGE_PRIORITY);
+		}
+
+		if(mMtu > 23) {
+			batch.requestMtu(mMtu);
+			stages.add(STAGE_MTU);
+		}
+
+		if(mTxPhy > 0 && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+			batch.setPreferredPhy(mTxPhy, mRxPhy, mPhyOptions);
+			stages.add(STAGE_PHY);
+		}
+
+		for(Notify notify : mNotifications) {
+			batch.enableNotify(notify.serviceUUID, notify.characteristicUUID, notify.callback);
+			stages.add(STAGE_NOTIFY);
+		}
+
+		if(stages.isEmpty()) return null;
+
+		batch.setStepListener((step, success, duration) -> onStage(stages.get(step), success, duration));
+		return batch.build(callback);
+	}
+
+	/**
+	 * Builder
+	 */
+	public static final class Builder {
+		private int mMtu = 0;
+		private int mTxPhy = 0;
+		private int mRxPhy = 0;
+		private int mPhyOptions = 0;
+		private int mConnectionPriority = -1;
+		private int mSchedulingPriority = ConnectionScheduler.PRIORITY_NORMAL;
+		private long mConnectTimeout = 0;
+		private long mDiscoveryTimeout = 0;
+		private boolean mWaitForDevice = false;
+		private final List<Notify> mNotifications = new ArrayList<>();
+		private BleConnectionStageListener mStageListener = null;
+
+		/**
+		 * Request a MTU (0 = keep the default one)
+		 * @param mtu int
+		 * @return Builder
+		 */
+		public Builder setMtu(int mtu) {
+			this.mMtu = mtu;
+			return this;
+		}
+
+		/**
+		 * Set the preferred PHY (Android 8+, BluetoothDevice.PHY_LE_xxx_MASK and PHY_OPTION_xxx)
+		 * @param txPhy int
+		 * @param rxPhy int
+		 * @param phyOptions int
+		 * @return Builder
+		 */
+		public Builder setPreferredPhy(int txPhy, int rxPhy, int phyOptions) {
+			this.mTxPhy = txPhy;
+			this.mRxPhy = rxPhy;
+			this.mPhyOptions = phyOptions;
+			return this;
+		}
+
+		/**
+		 * Request a connection priority (BluetoothGatt.CONNECTION_PRIORITY_xxx, -1 = none)
+		 * @param connectionPriority int
+		 * @return Builder
+		 */
+		public Builder setConnectionPriority(int connectionPriority) {
+			this.mConnectionPriority = connectionPriority;
+			return this;
+		}
+
+		/**
+		 * Set the priority of the connection attempt when it waits for a slot (ConnectionScheduler.PRIORITY_xxx)
+		 * @param schedulingPriority int
+		 * @return Builder
+		 */
+		public Builder setSchedulingPriority(int schedulingPriority) {
+			this.mSchedulingPriority = schedulingPriority;
+			return this;
+		}
+
+		/**
+		 * Connect attempt timeout, the gatt is closed and the connection fails with REASON_CONNECT_TIMEOUT (0 = stack timeout)
+		 * @param connectTimeout long (ms)
+		 * @return Builder
+		 */
+		public Builder setConnectTimeout(long connectTimeout) {
+			this.mConnectTimeout = Math.max(0, connectTimeout);
+			return this;
+		}
+
+		/**
+		 * Services discovery timeout per attempt, retried with backoff, the connection fails with REASON_DISCOVERY_TIMEOUT after the last attempt (0 = none)
+		 * @param discoveryTimeout long (ms)
+		 * @return Builder
+		 */
+		public Builder setDiscoveryTimeout(long discoveryTimeout) {
+			this.mDiscoveryTimeout = Math.max(0, discoveryTimeout);
+			return this;
+		}
+
+		/**
+		 * Wait for the device in background (autoConnect in the pending connections pool, holds a live connection slot, no connect timeout)
+		 * @param waitForDevice boolean
+		 * @return Builder
+		 */
+		public Builder setWaitForDevice(boolean waitForDevice) {
+			this.mWaitForDevice = waitForDevice;
+			return this;
+		}
+
+		public Builder addNotify(@NonNull String serviceUUID, @NonNull String characteristicUUID, @NonNull BleNotifyCallback callback) {
+			return addNotify(KnBle.gi().getUuidCache().get(serviceUUID), KnBle.gi().getUuidCache().get(characteristicUUID), callback);
+		}
+
+		public Builder addNotify(@NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, @NonNull BleNotifyCallback callback) {
+			mNotifications.add(new Notify(serviceUUID, characteristicUUID, callback));
+			return this;
+		}
+
+		/**
+		 * Listen to the duration of each stage
+		 * @param listener BleConnectionStageListener
+		 * @return Builder
+		 */
+		public Builder setStageListener(@Nullable BleConnectionStageListener listener) {
+			this.mStageListener = listener;
+			return this;
+		}
+
+		public ConnectionProfile build() {
+			return new ConnectionProfile(this);
+		}
+	}
+}
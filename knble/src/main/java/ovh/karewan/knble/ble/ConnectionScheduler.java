@@ -0,0 +1,291 @@
+package ovh.karewan.knble.ble;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import ovh.karewan.knble.Utils;
+
+/**
+ * Global connection scheduler (limits the concurrent connection attempts and the live connections, the others wait by priority)
+ * With a connection pool, the least recently used idle link is closed before a waiting attempt takes its slot
+ */
+public class ConnectionScheduler {
+	/**
+	 * Priorities
+	 */
+	public static final int PRIORITY_LOW = 0;
+	public static final int PRIORITY_NORMAL = 1;
+	public static final int PRIORITY_HIGH = 2;
+
+	/**
+	 * No limit
+	 */
+	public static final int NO_LIMIT = 0;
+
+	/**
+	 * Start listener
+	 */
+	interface StartListener {
+		/**
+		 * The connection attempt can start
+		 * @param waited Time spent in the queue (ms)
+		 */
+		void onStart(long waited);
+	}
+
+	/**
+	 * Evictor (connection pool)
+	 */
+	interface Evictor {
+		/**
+		 * Find the least recently used idle link
+		 * @return DeviceOperation or null if no link is idle
+		 */
+		@Nullable
+		DeviceOperation findIdleLink();
+	}
+
+	private static final class Request implements Comparable<Request> {
+		final DeviceOperation deviceOp;
+		final int priority;
+		final boolean background;
+		final long seq;
+		final long enqueuedAt;
+		final StartListener listener;
+
+		Request(@NonNull DeviceOperation deviceOp, int priority, boolean background, long seq, @NonNull StartListener listener) {
+			this.deviceOp = deviceOp;
+			this.priority = priority;
+			this.background = background;
+			this.seq = seq;
+			this.enqueuedAt = SystemClock.elapsedRealtime();
+			this.listener = listener;
+		}
+
+		@Override
+		public int compareTo(@NonNull Request o) {
+			// Highest priority first, then FIFO
+			if(priority != o.priority) return Integer.compare(o.priority, priority);
+			return Long.compare(seq, o.seq);
+		}
+	}
+
+	private final PriorityQueue<Request> mQueue = new PriorityQueue<>();
+	private final Set<DeviceOperation> mConnecting = new HashSet<>();
+	private final Set<DeviceOperation> mBackground = new HashSet<>();
+	private final Set<DeviceOperation> mConnected = new HashSet<>();
+	private final Evictor mEvictor;
+	private int mMaxConnecting = NO_LIMIT;
+	private int mMaxConnected = NO_LIMIT;
+	private int mMaxLinks = NO_LIMIT;
+	private DeviceOperation mEvicting;
+	private volatile boolean mHasQueued;
+	private long mSeq;
+
+	/**
+	 * Class constructor
+	 * @param evictor The evictor (connection pool)
+	 */
+	ConnectionScheduler(@NonNull Evictor evictor) {
+		mEvictor = evictor;
+	}
+
+	/**
+	 * Set the limits
+	 * @param maxConnecting Max concurrent connection attempts (NO_LIMIT = unlimited)
+	 * @param maxConnected Max live connections, attempts included (NO_LIMIT = unlimited)
+	 */
+	public void setLimits(int maxConnecting, int maxConnected) {
+		synchronized(this) {
+			mMaxConnecting = Math.max(NO_LIMIT, maxConnecting);
+			mMaxConnected = Math.max(NO_LIMIT, maxConnected);
+		}
+
+		dispatch();
+	}
+
+	/**
+	 * Set the connection pool limit (the least recently used idle link is closed to free a slot)
+	 * @param maxLinks Max live links, attempts and background connections included (NO_LIMIT = unlimited)
+	 */
+	void setPoolLimit(int maxLinks) {
+		synchronized(this) {
+			mMaxLinks = Math.max(NO_LIMIT, maxLinks);
+		}
+
+		dispatch();
+	}
+
+	/**
+	 * Get the count of queued connection attempts
+	 * @return int
+	 */
+	public synchronized int getQueuedCount() {
+		return mQueue.size();
+	}
+
+	/**
+	 * Request a connection attempt (started now if a slot is free, else queued)
+	 * @param deviceOp DeviceOperation
+	 * @param priority PRIORITY_xxx
+	 * @param listener StartListener
+	 */
+	void request(@NonNull DeviceOperation deviceOp, int priority, @NonNull StartListener listener) {
+		request(deviceOp, priority, false, listener);
+	}
+
+	/**
+	 * Request a live link slot for a background connection (not limited by the max attempts, the slot is held while waiting for the device)
+	 * @param deviceOp DeviceOperation
+	 * @param priority PRIORITY_xxx
+	 * @param listener StartListener
+	 */
+	void requestBackground(@NonNull DeviceOperation deviceOp, int priority, @NonNull StartListener listener) {
+		request(deviceOp, priority, true, listener);
+	}
+
+	private void request(@NonNull DeviceOperation deviceOp, int priority, boolean background, @NonNull StartListener listener) {
+		synchronized(this) {
+			removeLocked(deviceOp);
+			mQueue.add(new Request(deviceOp, priority, background, mSeq++, listener));
+			mHasQueued = true;
+		}
+
+		dispatch();
+	}
+
+	/**
+	 * The connection attempt succeeded (the link now counts as live)
+	 * @param deviceOp DeviceOperation
+	 */
+	void onConnected(@NonNull DeviceOperation deviceOp) {
+		synchronized(this) {
+			// Not granted (released meanwhile) => nothing to move
+			if(!mConnecting.remove(deviceOp) & !mBackground.remove(deviceOp)) return;
+			mConnected.add(deviceOp);
+		}
+
+		dispatch();
+	}
+
+	/**
+	 * The device is disconnected (or the attempt cancelled)
+	 * @param deviceOp DeviceOperation
+	 */
+	void release(@NonNull DeviceOperation deviceOp) {
+		synchronized(this) {
+			removeLocked(deviceOp);
+			if(mEvicting == deviceOp) mEvicting = null;
+		}
+
+		dispatch();
+	}
+
+	/**
+	 * The eviction of a link has been refused (no longer idle) => another link may be evicted
+	 * @param deviceOp DeviceOperation
+	 */
+	void onEvictCancelled(@NonNull DeviceOperation deviceOp) {
+		synchronized(this) {
+			if(mEvicting != deviceOp) return;
+			mEvicting = null;
+		}
+
+		dispatch();
+	}
+
+	/**
+	 * A link may have become idle => evict it if an attempt is waiting for a slot
+	 */
+	void onIdle() {
+		if(mHasQueued) dispatch();
+	}
+
+	/**
+	 * Remove a device from the queue and the slots
+	 * @param deviceOp DeviceOperation
+	 */
+	private void removeLocked(@NonNull DeviceOperation deviceOp) {
+		mQueue.removeIf(r -> r.deviceOp == deviceOp);
+		mHasQueued = !mQueue.isEmpty();
+		mConnecting.remove(deviceOp);
+		mBackground.remove(deviceOp);
+		mConnected.remove(deviceOp);
+	}
+
+	/**
+	 * Check if the max live links is reached
+	 * @return boolean
+	 */
+	private boolean isLiveLimitReachedLocked() {
+		int live = mConnecting.size() + mBackground.size() + mConnected.size();
+		return (mMaxConnected != NO_LIMIT && live >= mMaxConnected) || (mMaxLinks != NO_LIMIT && live >= mMaxLinks);
+	}
+
+	/**
+	 * Check if an attempt can start
+	 * @param request Request
+	 * @return boolean
+	 */
+	private boolean canStartLocked(@NonNull Request request) {
+		if(!request.background && mMaxConnecting != NO_LIMIT && mConnecting.size() >= mMaxConnecting) return false;
+		return !isLiveLimitReachedLocked();
+	}
+
+	/**
+	 * Start the queued attempts while slots are free (listeners called outside the lock)
+	 * When the live links limit blocks the next attempt, an idle link is evicted first (one at a time, the attempt starts once its slot is released)
+	 */
+	private void dispatch() {
+		List<Request> started = null;
+		boolean evict = false;
+
+		synchronized(this) {
+			while(!mQueue.isEmpty()) {
+				Request request = mQueue.peek();
+				if(!canStartLocked(request)) {
+					evict = mMaxLinks != NO_LIMIT && mEvicting == null && isLiveLimitReachedLocked();
+					break;
+				}
+
+				mQueue.poll();
+				(request.background ? mBackground : mConnecting).add(request.deviceOp);
+				if(started == null) started = new ArrayList<>();
+				started.add(request);
+			}
+
+			mHasQueued = !mQueue.isEmpty();
+		}
+
+		// Connection pool => close the least recently used idle link (nothing idle => the attempt stays queued)
+		if(evict) {
+			DeviceOperation victim = mEvictor.findIdleLink();
+			if(victim != null) {
+				synchronized(this) {
+					if(mEvicting == null) mEvicting = victim;
+					else victim = null;
+				}
+			}
+
+			// Asynchronous, its slot is released once closed
+			if(victim != null) victim.evict();
+		}
+
+		if(started == null) return;
+
+		long now = SystemClock.elapsedRealtime();
+		for(Request request : started) {
+			long waited = now - request.enqueuedAt;
+			Utils.log("connection slot granted mac=" + request.deviceOp.getDevice().getMac() + " waited=" + waited);
+			request.listener.onStart(waited);
+		}
+	}
+}
@@ -13,33 +13,49 @@ import android.os.Build;
 import android.os.Handler;
 import android.os.HandlerThread;
 import android.os.Looper;
+import android.os.SystemClock;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.io.IOException;
 import java.lang.reflect.Method;
-import java.util.Optional;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
 import ovh.karewan.knble.KnBle;
 import ovh.karewan.knble.Utils;
-import ovh.karewan.knble.cache.CharacteristicCache;
-import ovh.karewan.knble.cache.ServiceCache;
+import ovh.karewan.knble.cache.GattIndex;
+import ovh.karewan.knble.cache.ValueCache;
 import ovh.karewan.knble.interfaces.BleGattCallback;
 import ovh.karewan.knble.interfaces.BleGetCharacteristic;
 import ovh.karewan.knble.interfaces.BleGetDescriptor;
 import ovh.karewan.knble.interfaces.BleGetService;
 import ovh.karewan.knble.interfaces.BleMtuChangedCallback;
+import ovh.karewan.knble.interfaces.BleBatchNotifyCallback;
 import ovh.karewan.knble.interfaces.BleNotifyCallback;
+import ovh.karewan.knble.interfaces.BlePrepareCallback;
 import ovh.karewan.knble.interfaces.BlePhyValueCallback;
+import ovh.karewan.knble.interfaces.BleReadCallback;
+import ovh.karewan.knble.interfaces.BleReadRssiCallback;
 import ovh.karewan.knble.interfaces.BleSplittedWriteCallback;
+import ovh.karewan.knble.interfaces.BleWriteCallback;
 import ovh.karewan.knble.struct.BleDevice;
+import ovh.karewan.knble.struct.NotifyStats;
+import ovh.karewan.knble.struct.ReconnectStats;
+import ovh.karewan.knble.tasks.ConnectionPriorityTask;
 import ovh.karewan.knble.tasks.DisableNotifyTask;
 import ovh.karewan.knble.tasks.EnableNotifyTask;
+import ovh.karewan.knble.tasks.GattBatchTask;
 import ovh.karewan.knble.tasks.GattTask;
+import ovh.karewan.knble.tasks.PipelinedWriteCharaTask;
 import ovh.karewan.knble.tasks.ReadRssiTask;
+import ovh.karewan.knble.tasks.ReliableWriteTask;
 import ovh.karewan.knble.tasks.SplittedWriteCharaTask;
 import ovh.karewan.knble.tasks.UpdateMtuTask;
 import ovh.karewan.knble.tasks.ReadPhyTask;
@@ -51,26 +67,101 @@ import ovh.karewan.knble.tasks.WriteDescTask;
 
 @SuppressWarnings("MissingPermission")
 public class DeviceOperation {
+	/**
+	 * GATT cache refresh policies (applied at disconnect)
+	 */
+	public static final int CACHE_REFRESH_ALWAYS = 0;
+	public static final int CACHE_REFRESH_ON_CHANGE = 1;
+	public static final int CACHE_REFRESH_NEVER_BONDED = 2;
+
+	/**
+	 * Services discovery delays (ms) and attempts
+	 */
+	private static final long DISCOVERY_DELAY_BONDED = 1600;
+	private static final long DISCOVERY_RETRY_DELAY = 300;
+	private static final long DISCOVERY_MAX_DELAY = 3200;
+	private static final int DISCOVERY_MAX_ATTEMPTS = 4;
+
+	/**
+	 * Learned discovery delay per device (mac => delay of the last successful discovery, halved after each first try success)
+	 */
+	private static final ConcurrentHashMap<String, Long> sDiscoveryDelays = new ConcurrentHashMap<>();
+
 	private final HandlerThread mHandlerThread;
 	private final Handler mHandler;
+	private final ConnectionScheduler mScheduler;
+	private final PendingConnectionPool mPendingPool;
+	private final ScanCoexistence mScanCoexistence;
 	private final Handler mUiHandler = new Handler(Looper.getMainLooper());
-	private final ConcurrentLinkedQueue<GattTask> mTasksQueue = new ConcurrentLinkedQueue<>();
-	private final ServiceCache mServices = new ServiceCache();
-	private final CharacteristicCache mCharas = new CharacteristicCache();
-	private final ConcurrentHashMap<UUID, BleNotifyCallback> mNotifyCallbacks = new ConcurrentHashMap<>();
+	private final ArrayDeque<GattTask> mTasksQueue = new ArrayDeque<>();
+	private final ConcurrentHashMap<UUID, Set<UUID>> mCoalescedWrites = new ConcurrentHashMap<>();
+	private final ValueCache mValueCache = new ValueCache();
+	private volatile GattIndex mIndex = GattIndex.EMPTY;
+	private final ConcurrentHashMap<NotifySubscription.Key, NotifySubscription> mNotifySubscriptions = new ConcurrentHashMap<>();
 	private volatile BleDevice mDevice;
 	private volatile BluetoothGatt mBluetoothGatt;
 	private volatile int mState = BleGattCallback.DISCONNECTED;
 	private volatile GattTask mPendingTask;
+	private GattBatchTask mBatch;
 	private volatile BleGattCallback mCallback;
+	private volatile ConnectionProfile mProfile;
+	private boolean mBringingUp;
+	private long mConnectStart;
+	private long mStageStart;
+	private volatile int mCacheRefreshPolicy = CACHE_REFRESH_ALWAYS;
+	private boolean mCacheRefreshNeeded;
+	private volatile long mDiscoveryStart;
+	private long mDiscoveryDelay;
+	private int mDiscoveryAttempt;
+	private volatile long mLastDiscoveryDuration = -1;
+	private volatile long mLastConnectWaitTime = -1;
+	private int mConnectGeneration;
+	private volatile ReconnectPolicy mReconnectPolicy;
+	private volatile boolean mReconnecting;
+	private int mReconnectAttempt;
+	private int mReconnectCost;
+	private long mLinkLostAt;
+	private List<EnableNotifyTask> mResumeNotifies;
+	private volatile int mLinkLosses;
+	private volatile int mReconnected;
+	private volatile int mReconnectFailed;
+	private volatile long mLastReconnectDuration = -1;
+	private long mTotalReconnectDuration;
+	private volatile int mLastDisconnectReason = BleGattCallback.REASON_NONE;
+	private volatile long mIdleTimeout;
+	private volatile long mLastActivity = SystemClock.elapsedRealtime();
+	private volatile boolean mEvicted;
+	private volatile boolean mResuming;
+	private boolean mTransferring;
+	private volatile AdaptiveLinkPolicy mLinkPolicy;
+	private int mLinkPriority;
+	private int mLinkPriorityPending;
+	private int mLinkPhy;
+	private int mLinkPhyPending;
+	private int mLinkPhyRejected;
+	private long mLinkPhyRejectedAt;
+	private boolean mCodedPhy;
+	private long mLastBulk;
+	private long mLastRssiRead;
+	private volatile RssiMonitor mRssiMonitor;
+	private volatile float mRssiSmoothed = Float.NaN;
+	private volatile int mRssiQuality = RssiMonitor.QUALITY_UNKNOWN;
+	private float[] mRssiHistory = new float[0];
+	private int mRssiHistoryCount;
+	private int mRssiHistoryIndex;
+	private long mRssiDueAt;
 	private volatile int mMtu = 23;
 
 	/**
 	 * Class constructor
 	 * @param device BleDevice
+	 * @param manager DevicesManager
 	 */
-	public DeviceOperation(@NonNull BleDevice device) {
+	public DeviceOperation(@NonNull BleDevice device, @NonNull DevicesManager manager) {
 		mDevice = device;
+		mScheduler = manager.getScheduler();
+		mPendingPool = manager.getPendingPool();
+		mScanCoexistence = manager.getScanCoexistence();
 
 		mHandlerThread = new HandlerThread("KnBle" + device.getMac());
 		mHandlerThread.start();
@@ -166,6 +257,13 @@ public class DeviceOperation {
 	 */
 	private synchronized void setPendingTask(@Nullable GattTask task) {
 		mPendingTask = task;
+
+		// Bulk transfer => the scan gives the radio time back to the connection
+		boolean transferring = task instanceof SplittedWriteCharaTask || task instanceof ReliableWriteTask;
+		if(transferring != mTransferring) {
+			mTransferring = transferring;
+			mScanCoexistence.setTransferring(this, transferring);
+		}
 	}
 
 	/**
@@ -173,46 +271,331 @@ public class DeviceOperation {
 	 * @param task DeviceTask
 	 */
 	public void enqueueTask(@NonNull GattTask task) {
-		mTasksQueue.add(task);
+		if(!mValueCache.isEmpty()) {
+			switch(task) {
+				// Cached value => answered from memory
+				case ReadCharaTask t -> {
+					byte[] value = mValueCache.get(t.resolveServiceUUID(), t.resolveCharacteristicUUID());
+					if(value != null) {
+						BleReadCallback callback = t.getCallerCallback();
+						t.recycle();
+						mHandler.post(() -> callback.onReadSuccess(value));
+						return;
+					}
+				}
+
+				// Write => the cached value is outdated
+				case WriteCharaTask t -> mValueCache.invalidate(t.resolveServiceUUID(), t.resolveCharacteristicUUID());
+				case SplittedWriteCharaTask t -> invalidateValue(t.getService(), t.getServiceUUID(), t.getCharacteristic(), t.getCharacteristicUUID());
+				case ReliableWriteTask t -> {
+					for(ReliableWriteTask.Write write : t.getWrites()) invalidateValue(write.getService(), write.getServiceUUID(), write.getCharacteristic(), write.getCharacteristicUUID());
+				}
+				default -> {}
+			}
+		}
+
+		synchronized(mTasksQueue) {
+			// Duplicate read => attached to the queued or pending read
+			if(task instanceof ReadCharaTask t && coalesceRead(t)) {
+				t.recycle();
+				return;
+			}
+
+			// Write coalescing => the queued write of the same characteristic takes the newer payload
+			if(task instanceof WriteCharaTask t && !mCoalescedWrites.isEmpty()) {
+				WriteCharaTask queued = findCoalescedWrite(t);
+				if(queued != null) {
+					BleWriteCallback superseded = queued.merge(t);
+					t.recycle();
+					mHandler.post(superseded::onWriteMerged);
+					return;
+				}
+			}
+
+			mTasksQueue.add(task);
+		}
+
+		// Evicted idle link or link loss => reconnect first (the queued tasks run once connected)
+		if(mEvicted || mResuming || mReconnecting) {
+			if(mEvicted) mHandler.post(this::resume);
+			return;
+		}
+
 		doNextTask();
 	}
 
+	/**
+	 * Invalidate a cached value
+	 * @param service The service (or null)
+	 * @param serviceUUID The service UUID (if no service)
+	 * @param characteristic The characteristic (or null)
+	 * @param characteristicUUID The characteristic UUID (if no characteristic)
+	 */
+	private void invalidateValue(@Nullable BluetoothGattService service, @Nullable UUID serviceUUID, @Nullable BluetoothGattCharacteristic characteristic, @Nullable UUID characteristicUUID) {
+		mValueCache.invalidate(service != null ? service.getUuid() : serviceUUID, characteristic != null ? characteristic.getUuid() : characteristicUUID);
+	}
+
+	/**
+	 * Store a read value in the cache (not if a write of the characteristic is queued, the value would be outdated before being used)
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @param value The value
+	 * @param generation The generation captured when the read was sent
+	 */
+	private void cacheValue(@NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, @NonNull byte[] value, long generation) {
+		if(generation < 0) return;
+
+		synchronized(mTasksQueue) {
+			for(GattTask task : mTasksQueue) {
+				if(isWriteOf(task, serviceUUID, characteristicUUID)) return;
+			}
+
+			mValueCache.put(serviceUUID, characteristicUUID, value, generation);
+		}
+	}
+
+	/**
+	 * Check if a task writes a characteristic (batches are assumed to)
+	 * @param task GattTask
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @return boolean
+	 */
+	private static boolean isWriteOf(@NonNull GattTask task, @NonNull UUID serviceUUID, @NonNull UUID characteristicUUID) {
+		return switch(task) {
+			case WriteCharaTask t -> serviceUUID.equals(t.resolveServiceUUID()) && characteristicUUID.equals(t.resolveCharacteristicUUID());
+			case SplittedWriteCharaTask t -> isSameAttribute(t.getService(), t.getServiceUUID(), t.getCharacteristic(), t.getCharacteristicUUID(), serviceUUID, characteristicUUID);
+			case ReliableWriteTask t -> {
+				for(ReliableWriteTask.Write write : t.getWrites()) {
+					if(isSameAttribute(write.getService(), write.getServiceUUID(), write.getCharacteristic(), write.getCharacteristicUUID(), serviceUUID, characteristicUUID)) yield true;
+				}
+				yield false;
+			}
+			case GattBatchTask t -> true;
+			default -> false;
+		};
+	}
+
+	/**
+	 * Check if a service / characteristic pair matches the given UUIDs
+	 * @param service The service (or null)
+	 * @param serviceUUID The service UUID (if no service)
+	 * @param characteristic The characteristic (or null)
+	 * @param characteristicUUID The characteristic UUID (if no characteristic)
+	 * @param otherServiceUUID The service UUID to match
+	 * @param otherCharacteristicUUID The characteristic UUID to match
+	 * @return boolean
+	 */
+	private static boolean isSameAttribute(@Nullable BluetoothGattService service, @Nullable UUID serviceUUID, @Nullable BluetoothGattCharacteristic characteristic, @Nullable UUID characteristicUUID, @NonNull UUID otherServiceUUID, @NonNull UUID otherCharacteristicUUID) {
+		return otherServiceUUID.equals(service != null ? service.getUuid() : serviceUUID) && otherCharacteristicUUID.equals(characteristic != null ? characteristic.getUuid() : characteristicUUID);
+	}
+
+	/**
+	 * Enable the value cache of a characteristic (read-through, invalidated by writes, service changed and disconnect)
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @param ttl Time to live in ms (ValueCache.UNTIL_DISCONNECT, 0 to disable)
+	 */
+	public void setValueCache(@NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, long ttl) {
+		mValueCache.setPolicy(serviceUUID, characteristicUUID, ttl);
+	}
+
+	/**
+	 * Find a queued write of the same characteristic (must hold the queue lock)
+	 * Only writes after the last queued task that is not a coalescible write are candidates, so no task sees a newer value than at its request
+	 * @param t WriteCharaTask
+	 * @return WriteCharaTask or null if the coalescing is disabled or no write is queued
+	 */
+	@Nullable
+	private WriteCharaTask findCoalescedWrite(@NonNull WriteCharaTask t) {
+		if(!isWriteCoalesced(t)) return null;
+
+		Iterator<GattTask> it = mTasksQueue.descendingIterator();
+		while(it.hasNext()) {
+			if(!(it.next() instanceof WriteCharaTask w) || !isWriteCoalesced(w)) return null;
+			if(w.isSameAttribute(t)) return w;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Check if the write coalescing is enabled for the characteristic of a write
+	 * @param t WriteCharaTask
+	 * @return boolean
+	 */
+	private boolean isWriteCoalesced(@NonNull WriteCharaTask t) {
+		Set<UUID> characteristics = mCoalescedWrites.get(t.resolveServiceUUID());
+		return characteristics != null && characteristics.contains(t.resolveCharacteristicUUID());
+	}
+
+	/**
+	 * Enable or disable the write coalescing of a characteristic (last value wins)
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @param enabled boolean
+	 */
+	public void setWriteCoalescing(@NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, boolean enabled) {
+		synchronized(mTasksQueue) {
+			if(enabled) {
+				mCoalescedWrites.computeIfAbsent(serviceUUID, k -> ConcurrentHashMap.newKeySet()).add(characteristicUUID);
+			} else {
+				Set<UUID> characteristics = mCoalescedWrites.get(serviceUUID);
+				if(characteristics != null && characteristics.remove(characteristicUUID) && characteristics.isEmpty()) mCoalescedWrites.remove(serviceUUID);
+			}
+		}
+	}
+
+	/**
+	 * Attach a read to a queued or pending read of the same characteristic (must hold the queue lock)
+	 * Only reads after the last queued non read task are candidates, so no caller gets a value older than its request
+	 * @param t ReadCharaTask
+	 * @return true if coalesced
+	 */
+	private boolean coalesceRead(@NonNull ReadCharaTask t) {
+		Iterator<GattTask> it = mTasksQueue.descendingIterator();
+		while(it.hasNext()) {
+			GattTask task = it.next();
+			if(task instanceof ReadCharaTask r) {
+				if(r.isSameAttribute(t) && r.coalesce(t.getCallerCallback())) return true;
+			} else if(!(task instanceof ReadDescTask)) {
+				return false;
+			}
+		}
+
+		return mPendingTask instanceof ReadCharaTask r && r.isSameAttribute(t) && r.coalesce(t.getCallerCallback());
+	}
+
 	/**
 	 * Do the next task
 	 */
-	@SuppressLint("NewApi")
 	private void doNextTask() {
 		if(mPendingTask != null) return;
 
-		setPendingTask(mTasksQueue.poll());
+		synchronized(mTasksQueue) {
+			setPendingTask(mTasksQueue.poll());
+		}
 		if(mPendingTask == null) return;
 
 		// Execute the task
-		mHandler.post(() -> {
-			switch(mPendingTask) {
-				case UpdateMtuTask t -> updateMtu(t);
-				case UpdatePhyTask t -> updatePhy(t);
-				case ReadPhyTask t -> readPhy(t);
-				case ReadCharaTask t -> readChara(t);
-				case WriteCharaTask t -> writeChara(t);
-				case SplittedWriteCharaTask t -> splittedWriteChara(t);
-				case EnableNotifyTask t -> enableNotify(t);
-				case DisableNotifyTask t -> disableNotify(t);
-				case ReadDescTask t -> readDesc(t);
-				case WriteDescTask t -> writeDesc(t);
-				default -> {}
-			}
-		});
+		mHandler.post(() -> execute(mPendingTask));
+	}
+
+	/**
+	 * Execute a task
+	 * @param task GattTask
+	 */
+	@SuppressLint("NewApi")
+	private void execute(@Nullable GattTask task) {
+		switch(task) {
+			case GattBatchTask t -> runBatch(t);
+			case UpdateMtuTask t -> updateMtu(t);
+			case UpdatePhyTask t -> updatePhy(t);
+			case ConnectionPriorityTask t -> connectionPriority(t);
+			case ReadPhyTask t -> readPhy(t);
+			case ReadRssiTask t -> readRssi(t);
+			case ReadCharaTask t -> readChara(t);
+			case WriteCharaTask t -> writeChara(t);
+			case SplittedWriteCharaTask t -> splittedWriteChara(t);
+			case ReliableWriteTask t -> reliableWrite(t);
+			case EnableNotifyTask t -> enableNotify(t);
+			case DisableNotifyTask t -> disableNotify(t);
+			case ReadDescTask t -> readDesc(t);
+			case WriteDescTask t -> writeDesc(t);
+			case null, default -> {}
+		}
 	}
 
 	/**
 	 * Signal end of task
 	 */
 	private void signalEndOfTask() {
-		setPendingTask(null);
+		GattTask task = mPendingTask;
+		mHandler.removeCallbacks(mRetryPendingTask);
+
+		// Batch step ended => next step (the batch stays the pending task, no queue round trip)
+		GattBatchTask batch = mBatch;
+		if(batch != null && task != batch) {
+			synchronized(mTasksQueue) {
+				setPendingTask(batch);
+			}
+
+			if(task != null) task.recycle();
+			mHandler.post(this::nextBatchStep);
+			return;
+		}
+
+		if(task == batch) mBatch = null;
+
+		// Under the queue lock (no read can be coalesced into the ended task)
+		synchronized(mTasksQueue) {
+			setPendingTask(null);
+		}
+
+		// Link maintenance tasks (adaptive link) do not count as activity
+		if(!(task instanceof ReadRssiTask || task instanceof ConnectionPriorityTask || task instanceof UpdatePhyTask)) {
+			mLastActivity = SystemClock.elapsedRealtime();
+			scheduleIdleCheck();
+		}
+
+		if(task != null) task.recycle();
 		doNextTask();
 	}
 
+	/**
+	 * Run a batch
+	 * @param t GattBatchTask
+	 */
+	private void runBatch(@NonNull GattBatchTask t) {
+		Utils.log("execute GattBatchTask steps=" + t.getStepsCount());
+		mBatch = t;
+		nextBatchStep();
+	}
+
+	/**
+	 * Execute the next step of the current batch
+	 */
+	private void nextBatchStep() {
+		GattBatchTask batch = mBatch;
+		if(batch == null || mPendingTask != batch) return;
+
+		// Done (or stopped on failure)
+		GattTask step = batch.nextStep();
+		if(step == null) {
+			batch.finish();
+			signalEndOfTask();
+			return;
+		}
+
+		synchronized(mTasksQueue) {
+			setPendingTask(step);
+		}
+
+		execute(step);
+	}
+
+	/**
+	 * Connection priority
+	 * @param t ConnectionPriorityTask
+	 */
+	private void connectionPriority(@NonNull ConnectionPriorityTask t) {
+		Utils.log("execute ConnectionPriorityTask connectionPriority=" + t.getConnectionPriority());
+		boolean success = mBluetoothGatt != null && mBluetoothGatt.requestConnectionPriority(t.getConnectionPriority());
+		if(t.getListener() != null) t.getListener().onResult(success);
+		signalEndOfTask();
+	}
+
+	/**
+	 * Retry the pending task attempt (single reusable runnable, the retry state lives in the task)
+	 */
+	private final Runnable mRetryPendingTask = () -> {
+		switch(mPendingTask) {
+			case ReadCharaTask t -> readCharaAttempt(t);
+			case WriteCharaTask t -> writeCharaAttempt(t);
+			case null, default -> {}
+		}
+	};
+
 	/**
 	 * The gatt callback
 	 */
@@ -227,12 +610,18 @@ public class DeviceOperation {
 				switch (newState) {
 					// Connected
 					case BluetoothProfile.STATE_CONNECTED:
+						mHandler.removeCallbacks(mConnectTimeout);
+						mPendingPool.release(DeviceOperation.this);
+						mScheduler.onConnected(DeviceOperation.this);
+						reportStage(ConnectionProfile.STAGE_CONNECT, true);
 						discoverServices();
 						break;
 
 					// Disconnect
 					case BluetoothProfile.STATE_DISCONNECTED:
-						if(mState != BleGattCallback.DISCONNECTED) disconnect(false);
+						// Stack error (133...) => the cached database may be the culprit (not for a peer / host termination or a radio link issue)
+						if(ReconnectPolicy.isStackError(status)) mCacheRefreshNeeded = true;
+						if(mState != BleGattCallback.DISCONNECTED) onLinkLost(status, mState == BleGattCallback.CONNECTED ? BleGattCallback.REASON_LINK_LOSS : BleGattCallback.REASON_CONNECT_FAILED);
 						break;
 				}
 			});
@@ -243,12 +632,51 @@ public class DeviceOperation {
 			super.onServicesDiscovered(gatt, status);
 
 			mHandler.post(() -> {
-				Utils.log("onServicesDiscovered status=" + status);
+				// Late callback of a closed gatt (timeout)
+				if(gatt != mBluetoothGatt) return;
+
+				mHandler.removeCallbacks(mDiscoveryTimeout);
+				mLastDiscoveryDuration = SystemClock.elapsedRealtime() - mDiscoveryStart;
+				Utils.log("onServicesDiscovered status=" + status + " duration=" + mLastDiscoveryDuration);
 
-				if(mState == BleGattCallback.CONNECTED) return;
+				// Failed => retry with backoff
+				if(status != BluetoothGatt.GATT_SUCCESS) {
+					onDiscoveryFailed(BleGattCallback.REASON_DISCOVERY_FAILED);
+					return;
+				}
+
+				// Learn the delay that worked for this device (first try => shorter next time, a slow connection does not stick)
+				sDiscoveryDelays.put(mDevice.getMac(), mDiscoveryAttempt > 0 ? mDiscoveryDelay : decayDiscoveryDelay(mDiscoveryDelay));
+
+				// Build the attributes index (swapped at once, also after a service changed)
+				mIndex = GattIndex.build(gatt.getServices());
+
+				if(mState == BleGattCallback.CONNECTED || mBringingUp) return;
+				reportStage(ConnectionProfile.STAGE_DISCOVERY, true);
+
+				// Resume the notifications enabled before the link loss (ahead of the queued tasks)
+				List<EnableNotifyTask> resume = mResumeNotifies;
+				mResumeNotifies = null;
+				if(resume != null && !resume.isEmpty()) {
+					synchronized(mTasksQueue) {
+						for(int i = resume.size() - 1; i >= 0; i--) mTasksQueue.addFirst(resume.get(i));
+					}
+				}
 
-				setState(BleGattCallback.CONNECTED);
-				if(mCallback != null) mCallback.onConnectSuccess(gatt.getServices());
+				// Connection bring-up (runs ahead of the queued tasks, onConnectSuccess once negotiated)
+				ConnectionProfile profile = mProfile;
+				GattBatchTask bringUp = profile != null ? profile.buildBatch((success, results) -> connected(gatt)) : null;
+				if(bringUp == null) {
+					connected(gatt);
+					doNextTask();
+					return;
+				}
+
+				mBringingUp = true;
+				synchronized(mTasksQueue) {
+					mTasksQueue.addFirst(bringUp);
+				}
+				doNextTask();
 			});
 		}
 
@@ -258,6 +686,8 @@ public class DeviceOperation {
 
 			mHandler.post(() -> {
 				Utils.log("onServiceChanged");
+				mCacheRefreshNeeded = true;
+				mValueCache.clear();
 				discoverServices();
 			});
 		}
@@ -266,24 +696,34 @@ public class DeviceOperation {
 		public void onCharacteristicChanged(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic) {
 			super.onCharacteristicChanged(gatt, characteristic);
 
-			mHandler.post(() -> {
-				Utils.log("onCharacteristicChanged");
+			// Android 13+ => handled by the value-carrying callback
+			if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) return;
 
-				BleNotifyCallback callback = mNotifyCallbacks.get(characteristic.getUuid());
-				if(callback != null) callback.onNotify(characteristic.getValue());
-			});
+			// Capture the value now (the characteristic value is replaced by the next notification)
+			onNotify(characteristic, characteristic.getValue());
+		}
+
+		@Override
+		public void onCharacteristicChanged(@NonNull BluetoothGatt gatt, @NonNull BluetoothGattCharacteristic characteristic, @NonNull byte[] value) {
+			// Do not call super (it calls the deprecated callback)
+			onNotify(characteristic, value);
 		}
 
 		@Override
 		public void onCharacteristicRead(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, int status) {
 			super.onCharacteristicRead(gatt, characteristic, status);
 
+			// Capture the value now (it can be replaced by a notification before the handler runs)
+			byte[] value = characteristic.getValue();
+
 			mHandler.post(() -> {
 				Utils.log("onCharacteristicRead status=" + status);
 
 				if(mPendingTask instanceof ReadCharaTask t) {
-					if(status == BluetoothGatt.GATT_SUCCESS) {
-						t.getCallback().onReadSuccess(characteristic.getValue());
+					if(status == BluetoothGatt.GATT_SUCCESS && value != null) {
+						BluetoothGattService service = characteristic.getService();
+						if(service != null) cacheValue(service.getUuid(), characteristic.getUuid(), value, t.getCacheGeneration());
+						t.getCallback().onReadSuccess(value);
 					} else {
 						t.getCallback().onReadFailed();
 					}
@@ -300,11 +740,52 @@ public class DeviceOperation {
 			mHandler.post(() -> {
 				Utils.log("onCharacteristicWrite status=" + status);
 
-				if(mPendingTask instanceof SplittedWriteCharaTask t) {
+				// The cached value (if any) is outdated
+				BluetoothGattService service = characteristic.getService();
+				if(service != null) mValueCache.invalidate(service.getUuid(), characteristic.getUuid());
+
+				if(mPendingTask instanceof ReliableWriteTask t) {
+					ReliableWriteTask.Write write = t.getCurrentWrite();
+
+					// Failed (the transaction must be aborted, the prepared value echoed by the remote device is not exposed by the API)
+					if(status != BluetoothGatt.GATT_SUCCESS || write == null) {
+						Utils.log("reliableWrite prepare failed");
+						abortReliableWrite(t);
+						return;
+					}
+
+					// Next write
+					t.next();
+					reliableWriteNext(t);
+					return;
+				}
+
+				if(mPendingTask instanceof PipelinedWriteCharaTask t) {
+					t.onPacketAcked();
+
+					// Failed
+					if(status != BluetoothGatt.GATT_SUCCESS) t.setFailed();
+
+					// Wait for all the packets in flight before ending the task
+					if(t.isFailed()) {
+						if(t.getInFlight() == 0) {
+							t.getCallback().onWriteFailed();
+							signalEndOfTask();
+						}
+						return;
+					}
+
+					// Notify progress and stats
+					t.getCallback().onWriteProgress(t.getAckedPkg(), t.getTotalPkg());
+					t.getCallback().onWriteStats(t.getBytesPerSecond(), t.getInFlight());
+
+					// Resume the pipeline (ends the task when all packets are acknowledged)
+					Runnable r = t.getRunnable();
+					if(r != null) r.run();
+				} else if(mPendingTask instanceof SplittedWriteCharaTask t) {
 					if(status == BluetoothGatt.GATT_SUCCESS) {
 						// Notify progress
-						int totalPkg = t.getTotalPkg();
-						t.getCallback().onWriteProgress(totalPkg-t.getQueueSize(), totalPkg);
+						t.getCallback().onWriteProgress(t.getSentPkg(), t.getTotalPkg());
 
 						// Execute next pkg
 						Runnable r = t.getRunnable();
@@ -362,11 +843,11 @@ public class DeviceOperation {
 					// Enable notify task
 					case EnableNotifyTask t -> {
 						if(status == BluetoothGatt.GATT_SUCCESS) {
-							t.getCallback().onNotifyEnabled();
+							t.notifyEnabled();
 						} else {
 							gatt.setCharacteristicNotification(descriptor.getCharacteristic(), false);
-							mNotifyCallbacks.remove(descriptor.getCharacteristic().getUuid());
-							t.getCallback().onNotifyDisabled();
+							removeSubscription(NotifySubscription.Key.of(descriptor.getCharacteristic()));
+							t.notifyDisabled();
 						}
 
 						signalEndOfTask();
@@ -374,8 +855,8 @@ public class DeviceOperation {
 
 					// Disable notify task
 					case DisableNotifyTask t -> {
-						BleNotifyCallback callback = t.getCallback();
-						if(callback != null) callback.onNotifyDisabled();
+						BleNotifyCallback[] callbacks = t.getRemovedCallbacks();
+						if(callbacks != null) notifyDisabled(callbacks);
 						signalEndOfTask();
 					}
 
@@ -407,6 +888,7 @@ public class DeviceOperation {
 					setMtu(mtu);
 					BleMtuChangedCallback callback = t.getCallback();
 					if(callback != null) callback.onMtuChanged(mtu);
+					t.notifyResult(status == BluetoothGatt.GATT_SUCCESS);
 					signalEndOfTask();
 				}
 			});
@@ -433,9 +915,13 @@ public class DeviceOperation {
 			mHandler.post(() -> {
 				Utils.log("onPhyUpdate txPhy=" + txPhy + " rxPhy=" + rxPhy + " status=" + status);
 
+				// Current PHY (also when the update comes from the peer)
+				if(status == BluetoothGatt.GATT_SUCCESS) mLinkPhy = txPhy == rxPhy ? txPhy : -1;
+
 				if(mPendingTask instanceof UpdatePhyTask t) {
 					BlePhyValueCallback callback = t.getCallback();
 					if(callback != null) callback.onPhyValue(txPhy, rxPhy);
+					t.notifyResult(status == BluetoothGatt.GATT_SUCCESS);
 					signalEndOfTask();
 				}
 			});
@@ -447,6 +933,16 @@ public class DeviceOperation {
 
 			mHandler.post(() -> {
 				Utils.log("onReliableWriteCompleted status=" + status);
+
+				if(mPendingTask instanceof ReliableWriteTask t && t.isExecuting()) {
+					if(status == BluetoothGatt.GATT_SUCCESS) {
+						t.getCallback().onWriteSuccess();
+					} else {
+						t.getCallback().onWriteFailed();
+					}
+
+					signalEndOfTask();
+				}
 			});
 		}
 
@@ -458,18 +954,156 @@ public class DeviceOperation {
 				Utils.log("onReadRemoteRssi rssi=" + rssi + " status=" + status);
 
 				if(mPendingTask instanceof ReadRssiTask t)  {
-					t.getCallback().onRssi(rssi);
+					if(status == BluetoothGatt.GATT_SUCCESS) t.getCallback().onRssi(rssi);
+					else t.getCallback().onRssiFailed();
 					signalEndOfTask();
 				}
 			});
 		}
 	};
 
+	/**
+	 * Dispatch a notification (called from the binder thread)
+	 * @param characteristic The characteristic
+	 * @param value The value captured at callback time
+	 */
+	private void onNotify(@NonNull BluetoothGattCharacteristic characteristic, @Nullable byte[] value) {
+		NotifySubscription.Key key = NotifySubscription.Key.of(characteristic);
+		NotifySubscription subscription = mNotifySubscriptions.get(key);
+		if(subscription == null) return;
+
+		subscription.onReceived();
+		if(value == null) {
+			subscription.onDropped();
+			return;
+		}
+
+		// Batched subscribers => enqueue directly from the binder thread
+		for(NotifySubscription.Subscriber subscriber : subscription.getSubscribers()) {
+			if(subscriber.batcher != null && !subscriber.batcher.offer(value)) subscription.onDropped();
+		}
+
+		// Direct subscribers => a single post for all of them
+		if(subscription.getDirectCount() == 0) return;
+
+		mHandler.post(() -> {
+			// Unsubscribed in the meantime
+			if(mNotifySubscriptions.get(key) != subscription) {
+				subscription.onDropped();
+				return;
+			}
+
+			for(NotifySubscription.Subscriber subscriber : subscription.getSubscribers()) {
+				if(subscriber.batcher == null) subscriber.callback.onNotify(value);
+			}
+		});
+	}
+
+	/**
+	 * Call onNotifyDisabled on the callbacks
+	 * @param callbacks BleNotifyCallback[]
+	 */
+	private static void notifyDisabled(@NonNull BleNotifyCallback[] callbacks) {
+		for(BleNotifyCallback callback : callbacks) callback.onNotifyDisabled();
+	}
+
+	/**
+	 * Get a descriptor from the index (fallback on the characteristic when not indexed)
+	 * @param characteristic The characteristic
+	 * @param descriptorUUID The descriptor UUID
+	 * @return BluetoothGattDescriptor or null
+	 */
+	@Nullable
+	private BluetoothGattDescriptor getDescriptor(@NonNull BluetoothGattCharacteristic characteristic, @Nullable UUID descriptorUUID) {
+		BluetoothGattService service = characteristic.getService();
+		GattIndex.Entry entry = service == null ? null : mIndex.get(service.getUuid(), characteristic.getUuid(), characteristic.getInstanceId());
+		return entry != null ? entry.getDescriptor(descriptorUUID) : characteristic.getDescriptor(descriptorUUID);
+	}
+
+	/**
+	 * Remove and close a notify subscription
+	 * @param key The subscription key
+	 * @return NotifySubscription or null
+	 */
+	@Nullable
+	private NotifySubscription removeSubscription(@NonNull NotifySubscription.Key key) {
+		NotifySubscription subscription = mNotifySubscriptions.remove(key);
+		if(subscription != null) subscription.close();
+		return subscription;
+	}
+
+	/**
+	 * Get the notification stats of a characteristic
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @return NotifyStats or null if the notification is not enabled
+	 */
+	@Nullable
+	public NotifyStats getNotifyStats(@NonNull UUID serviceUUID, @NonNull UUID characteristicUUID) {
+		BluetoothGattCharacteristic characteristic = mIndex.getCharacteristic(serviceUUID, characteristicUUID);
+		NotifySubscription subscription = characteristic != null ? mNotifySubscriptions.get(NotifySubscription.Key.of(characteristic)) : null;
+		return subscription != null ? subscription.getStats() : null;
+	}
+
+	/**
+	 * Connection established (services discovered and bring-up done)
+	 * @param gatt BluetoothGatt
+	 */
+	private void connected(@NonNull BluetoothGatt gatt) {
+		mBringingUp = false;
+		if(mState != BleGattCallback.CONNECTING || mBluetoothGatt == null) return;
+
+		setState(BleGattCallback.CONNECTED);
+		if(mProfile != null) mProfile.onStage(ConnectionProfile.STAGE_READY, true, SystemClock.elapsedRealtime() - mConnectStart);
+
+		// Idle timer starts now
+		mScanCoexistence.setConnecting(this, false);
+		startLinkManager();
+		startRssiMonitor();
+		mResuming = false;
+		mLastActivity = SystemClock.elapsedRealtime();
+		scheduleIdleCheck();
+
+		// Reconnected
+		if(mReconnecting) {
+			mReconnecting = false;
+			mLastReconnectDuration = SystemClock.elapsedRealtime() - mLinkLostAt;
+			mTotalReconnectDuration += mLastReconnectDuration;
+			mReconnected++;
+			Utils.log("reconnected attempts=" + mReconnectAttempt + " duration=" + mLastReconnectDuration);
+
+			ReconnectPolicy policy = mReconnectPolicy;
+			if(policy != null && policy.getCallback() != null) policy.getCallback().onReconnected(mReconnectAttempt, mLastReconnectDuration);
+		}
+
+		if(mCallback != null) mCallback.onConnectSuccess(gatt.getServices());
+	}
+
+	/**
+	 * Report a connection stage and start timing the next one
+	 * @param stage ConnectionProfile.STAGE_xxx
+	 * @param success boolean
+	 */
+	private void reportStage(int stage, boolean success) {
+		long now = SystemClock.elapsedRealtime();
+		if(mProfile != null) mProfile.onStage(stage, success, now - mStageStart);
+		mStageStart = now;
+	}
+
 	/**
 	 * Connect the device
 	 * @param callback BleGattCallback
 	 */
 	public void connect(@NonNull BleGattCallback callback) {
+		connect(callback, null);
+	}
+
+	/**
+	 * Connect the device and negotiate the profile before onConnectSuccess
+	 * @param callback BleGattCallback
+	 * @param profile ConnectionProfile (null = none)
+	 */
+	public void connect(@NonNull BleGattCallback callback, @Nullable ConnectionProfile profile) {
 		mHandler.post(() -> {
 			Utils.log("connect");
 
@@ -483,6 +1117,10 @@ public class DeviceOperation {
 			}
 
 			// Set state connecting
+			mEvicted = false;
+			mProfile = profile;
+			mBringingUp = false;
+			mConnectStart = mStageStart = SystemClock.elapsedRealtime();
 			setState(BleGattCallback.CONNECTING);
 			callback.onConnecting();
 
@@ -495,46 +1133,92 @@ public class DeviceOperation {
 
 				if(!KnBle.gi().enableBluetooth(true)) {
 					// Connect failed => Disconnect
-					disconnect(false);
+					fail(BleGattCallback.REASON_BLUETOOTH_DISABLED);
 				} else {
 					// Add delay to be sure the adapter has time to init before connect
 					delayBeforeConnect += 5000;
 				}
 			}
 
-			// Connecting after the delay
-			mHandler.postDelayed(() -> {
-				setBluetoothGatt(null);
-
-				// Always connect with autoConnect==false for better connection speed
-				setBluetoothGatt(mDevice.getDevice().connectGatt(KnBle.gi().getContext(), false, mBluetoothGattCallback, BluetoothDevice.TRANSPORT_LE));
-
-				// If other methods have failed
-				if(mBluetoothGatt == null) setBluetoothGatt(mDevice.getDevice().connectGatt(KnBle.gi().getContext(), false, mBluetoothGattCallback));
-
-				// Connect failed => Disconnect
-				if(mBluetoothGatt == null) disconnect(false);
-			}, delayBeforeConnect);
+			startConnect(delayBeforeConnect);
 		});
 	}
 
 	/**
-	 * Get a service
-	 * @param serviceUUID The service UUID
-	 * @param callback BleGetService
+	 * Wait for a connection slot, then connecting after the delay
+	 * @param delay Delay before connect (ms)
 	 */
-	public void getService(@NonNull UUID serviceUUID, @NonNull BleGetService callback) {
-		mHandler.post(() -> {
-			Utils.log("hasService");
+	private void startConnect(long delay) {
+		int generation = mConnectGeneration;
+		int priority = mProfile != null ? mProfile.getSchedulingPriority() : ConnectionScheduler.PRIORITY_NORMAL;
+
+		// Wait for the device in background => a live link slot, then a place in the pending pool (no timeout)
+		if(mProfile != null && mProfile.isWaitForDevice()) {
+			mScheduler.requestBackground(this, priority, waited -> mPendingPool.request(this, () -> mHandler.postDelayed(() -> {
+				// Disconnected while waiting
+				if(generation != mConnectGeneration || mState != BleGattCallback.CONNECTING) return;
+
+				mLastConnectWaitTime = waited;
+				mStageStart = SystemClock.elapsedRealtime();
+				setBluetoothGatt(mDevice.getDevice().connectGatt(KnBle.gi().getContext(), true, mBluetoothGattCallback, BluetoothDevice.TRANSPORT_LE));
+				if(mBluetoothGatt == null) fail(BleGattCallback.REASON_CONNECT_FAILED);
+			}, delay)));
+			return;
+		}
 
-			// Check if is connected
-			if(mBluetoothGatt == null) {
-				callback.onFailed();
+		mScheduler.request(this, priority, waited -> mHandler.postDelayed(() -> {
+			// Disconnected while waiting
+			if(generation != mConnectGeneration || mState != BleGattCallback.CONNECTING) return;
+
+			mLastConnectWaitTime = waited;
+			mStageStart = SystemClock.elapsedRealtime();
+			setBluetoothGatt(null);
+
+			// Always connect with autoConnect==false for better connection speed
+			setBluetoothGatt(mDevice.getDevice().connectGatt(KnBle.gi().getContext(), false, mBluetoothGattCallback, BluetoothDevice.TRANSPORT_LE));
+
+			// If other methods have failed
+			if(mBluetoothGatt == null) setBluetoothGatt(mDevice.getDevice().connectGatt(KnBle.gi().getContext(), false, mBluetoothGattCallback));
+
+			// Connect failed => Disconnect
+			if(mBluetoothGatt == null) {
+				fail(BleGattCallback.REASON_CONNECT_FAILED);
+				return;
+			}
+
+			// Connection setup => scan lowered or paused until connected
+			mScanCoexistence.setConnecting(this, true);
+
+			// Hung connect guard (some stacks never call back, or only after ~30 s)
+			if(mProfile != null && mProfile.getConnectTimeout() > 0) mHandler.postDelayed(mConnectTimeout, mProfile.getConnectTimeout());
+		}, delay));
+	}
+
+	/**
+	 * Get the time the last connection attempt waited for a slot
+	 * @return long (ms, -1 if unknown)
+	 */
+	public long getLastConnectWaitTime() {
+		return mLastConnectWaitTime;
+	}
+
+	/**
+	 * Get a service
+	 * @param serviceUUID The service UUID
+	 * @param callback BleGetService
+	 */
+	public void getService(@NonNull UUID serviceUUID, @NonNull BleGetService callback) {
+		mHandler.post(() -> {
+			Utils.log("hasService");
+
+			// Check if is connected
+			if(mBluetoothGatt == null) {
+				callback.onFailed();
 				return;
 			}
 
 			// Get the service
-			BluetoothGattService service = mServices.get(serviceUUID, mBluetoothGatt);
+			BluetoothGattService service = mIndex.getService(serviceUUID);
 			if(service != null) callback.onSuccess(service);
 			else callback.onFailed();
 		});
@@ -556,15 +1240,8 @@ public class DeviceOperation {
 				return;
 			}
 
-			// Get the service
-			BluetoothGattService service = mServices.get(serviceUUID, mBluetoothGatt);
-			if(service == null) {
-				callback.onFailed();
-				return;
-			}
-
 			// Get the characteristic
-			BluetoothGattCharacteristic characteristic = mCharas.get(characteristicUUID, service);
+			BluetoothGattCharacteristic characteristic = mIndex.getCharacteristic(serviceUUID, characteristicUUID);
 			if(characteristic != null) callback.onSuccess(characteristic);
 			else callback.onFailed();
 		});
@@ -587,24 +1264,64 @@ public class DeviceOperation {
 				return;
 			}
 
-			// Get the service
-			BluetoothGattService service = mServices.get(serviceUUID, mBluetoothGatt);
-			if(service == null) {
+			// Get the descriptor
+			GattIndex.Entry entry = mIndex.get(serviceUUID, characteristicUUID);
+			BluetoothGattDescriptor descriptor = entry == null ? null : entry.getDescriptor(descriptorUUID);
+			if(descriptor != null) callback.onSuccess(descriptor);
+			else callback.onFailed();
+		});
+	}
+
+	/**
+	 * Get the current attributes index
+	 * @return GattIndex
+	 */
+	@NonNull
+	GattIndex getIndex() {
+		return mIndex;
+	}
+
+	/**
+	 * Prepare a characteristic handle
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @param callback BlePrepareCallback
+	 */
+	public void prepare(@NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, @NonNull BlePrepareCallback callback) {
+		mHandler.post(() -> {
+			Utils.log("prepare");
+
+			// Check if is connected
+			GattIndex index = mIndex;
+			if(mBluetoothGatt == null) {
 				callback.onFailed();
 				return;
 			}
 
 			// Get the characteristic
-			BluetoothGattCharacteristic characteristic = mCharas.get(characteristicUUID, service);
-			if(characteristic == null) {
+			GattIndex.Entry entry = index.get(serviceUUID, characteristicUUID);
+			if(entry != null) callback.onSuccess(new CharacteristicHandle(this, index, entry.getService(), entry.getCharacteristic()));
+			else callback.onFailed();
+		});
+	}
+
+	/**
+	 * Prepare a characteristic handle
+	 * @param service The service
+	 * @param characteristic The characteristic
+	 * @param callback BlePrepareCallback
+	 */
+	public void prepare(@NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, @NonNull BlePrepareCallback callback) {
+		mHandler.post(() -> {
+			Utils.log("prepare");
+
+			// Check if is connected
+			if(mBluetoothGatt == null) {
 				callback.onFailed();
 				return;
 			}
 
-			// Get the descriptor
-			BluetoothGattDescriptor descriptor = characteristic.getDescriptor(descriptorUUID);
-			if(descriptor != null) callback.onSuccess(descriptor);
-			else callback.onFailed();
+			callback.onSuccess(new CharacteristicHandle(this, mIndex, service, characteristic));
 		});
 	}
 
@@ -627,8 +1344,10 @@ public class DeviceOperation {
 	private void updateMtu(@NonNull UpdateMtuTask t) {
 		int mtu = t.getMtu();
 		Utils.log("execute UpdateMtuTask mtu=" + mtu);
-		if(mBluetoothGatt != null) mBluetoothGatt.requestMtu(mtu);
-		else signalEndOfTask();
+		if(mBluetoothGatt != null && mBluetoothGatt.requestMtu(mtu)) return;
+
+		t.notifyResult(false);
+		signalEndOfTask();
 	}
 
 	/**
@@ -641,8 +1360,13 @@ public class DeviceOperation {
 		int rxPhy = t.getRxPhy();
 		int phyOptions = t.getPhyOptions();
 		Utils.log("execute UpdatePhyTask txPhy=" + txPhy + " rxPhy=" + rxPhy + " phyOptions=" + phyOptions);
-		if(mBluetoothGatt != null) mBluetoothGatt.setPreferredPhy(txPhy, rxPhy, phyOptions);
-		else signalEndOfTask();
+		if(mBluetoothGatt != null) {
+			mBluetoothGatt.setPreferredPhy(txPhy, rxPhy, phyOptions);
+			return;
+		}
+
+		t.notifyResult(false);
+		signalEndOfTask();
 	}
 
 	/**
@@ -656,6 +1380,18 @@ public class DeviceOperation {
 		else signalEndOfTask();
 	}
 
+	/**
+	 * Read RSSI
+	 * @param t ReadRssiTask
+	 */
+	private void readRssi(@NonNull ReadRssiTask t) {
+		Utils.log("execute ReadRssiTask");
+		if(mBluetoothGatt == null || !mBluetoothGatt.readRemoteRssi()) {
+			t.getCallback().onRssiFailed();
+			signalEndOfTask();
+		}
+	}
+
 	/**
 	 * Read Chara
 	 * @param t ReadCharaTask
@@ -672,7 +1408,7 @@ public class DeviceOperation {
 		}
 
 		// Get the service
-		BluetoothGattService service = Optional.ofNullable(t.getService()).orElse(mServices.get(t.getServiceUUID(), mBluetoothGatt));
+		BluetoothGattService service = t.getService() != null ? t.getService() : mIndex.getService(t.getServiceUUID());
 		if(service == null) {
 			Utils.log("readChara service is null");
 			t.getCallback().onReadFailed();
@@ -681,7 +1417,7 @@ public class DeviceOperation {
 		}
 
 		// Get the characteristic
-		BluetoothGattCharacteristic characteristic = Optional.ofNullable(t.getCharacteristic()).orElse(mCharas.get(t.getCharacteristicUUID(), service));
+		BluetoothGattCharacteristic characteristic = t.getCharacteristic() != null ? t.getCharacteristic() : mIndex.getCharacteristic(service.getUuid(), t.getCharacteristicUUID());
 		if(characteristic == null || (characteristic.getProperties() & BluetoothGattCharacteristic.PROPERTY_READ) == 0) {
 			Utils.log("readChara characteristic is null or property read = 0");
 			t.getCallback().onReadFailed();
@@ -689,38 +1425,41 @@ public class DeviceOperation {
 			return;
 		}
 
-		// Retry counter
-		final int[] retry = {0};
+		// Execute the read (a value cache invalidation from now on discards the result)
+		t.setCacheGeneration(mValueCache.getGeneration(service.getUuid(), characteristic.getUuid()));
+		t.setResolvedCharacteristic(characteristic);
+		readCharaAttempt(t);
+	}
 
-		// Execute the read (with retry in case of gatt busy)
-		(new Runnable() {
-			@Override
-			public void run() {
-				// Check if is connected
-				if(mBluetoothGatt == null) {
-					Utils.log("readChara mBluetoothGatt is null");
-					t.getCallback().onReadFailed();
-					signalEndOfTask();
-					return;
-				}
+	/**
+	 * Read Chara attempt (with retry in case of gatt busy)
+	 * @param t ReadCharaTask
+	 */
+	private void readCharaAttempt(@NonNull ReadCharaTask t) {
+		// Check if is connected
+		if(mBluetoothGatt == null) {
+			Utils.log("readChara mBluetoothGatt is null");
+			t.getCallback().onReadFailed();
+			signalEndOfTask();
+			return;
+		}
 
-				// Success
-				if(mBluetoothGatt.readCharacteristic(characteristic)) return;
+		// Success
+		//noinspection DataFlowIssue
+		if(mBluetoothGatt.readCharacteristic(t.getResolvedCharacteristic())) return;
 
-				// Failed
-				Utils.log("readChara failed to initiate the read retry = " + retry[0]);
+		// Failed
+		Utils.log("readChara failed to initiate the read retry = " + t.getRetry());
 
-				// Retry
-				if(retry[0] < 100) {
-					retry[0]++;
-					mHandler.postDelayed(this, 50);
-				} else {
-					// Failed
-					t.getCallback().onReadFailed();
-					signalEndOfTask();
-				}
-			}
-		}).run();
+		// Retry
+		if(t.getRetry() < 100) {
+			t.incrementRetry();
+			mHandler.postDelayed(mRetryPendingTask, 50);
+		} else {
+			// Failed
+			t.getCallback().onReadFailed();
+			signalEndOfTask();
+		}
 	}
 
 	/**
@@ -738,74 +1477,110 @@ public class DeviceOperation {
 			return;
 		}
 
-		// Get the service
-		BluetoothGattService service = Optional.ofNullable(t.getService()).orElse(mServices.get(t.getServiceUUID(), mBluetoothGatt));
-		if(service == null) {
-			Utils.log("writeChara service is null");
-			t.getCallback().onWriteFailed();
-			signalEndOfTask();
-			return;
+		// Already validated (prepared handle)
+		BluetoothGattCharacteristic characteristic;
+		int writeType = t.getWriteType();
+		if(writeType != WriteCharaTask.WRITE_TYPE_AUTO) {
+			// Only with or without response (no silent fallback for a signed or unknown write type)
+			if(writeType != BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT && writeType != BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE) {
+				Utils.log("writeChara unsupported write type = " + writeType);
+				t.getCallback().onWriteFailed();
+				signalEndOfTask();
+				return;
+			}
+
+			//noinspection DataFlowIssue
+			characteristic = t.getCharacteristic();
+		} else {
+			// Get the service
+			BluetoothGattService service = t.getService() != null ? t.getService() : mIndex.getService(t.getServiceUUID());
+			if(service == null) {
+				Utils.log("writeChara service is null");
+				t.getCallback().onWriteFailed();
+				signalEndOfTask();
+				return;
+			}
+
+			// Get the characteristic
+			characteristic = t.getCharacteristic() != null ? t.getCharacteristic() : mIndex.getCharacteristic(service.getUuid(), t.getCharacteristicUUID());
+			if(characteristic == null) {
+				Utils.log("writeChara characteristic is null");
+				t.getCallback().onWriteFailed();
+				signalEndOfTask();
+				return;
+			}
+
+			// Write type
+			writeType = getWriteType(characteristic, t.isNoResponse());
+			if(writeType == WriteCharaTask.WRITE_TYPE_AUTO) {
+				Utils.log("writeChara properties write = 0");
+				t.getCallback().onWriteFailed();
+				signalEndOfTask();
+				return;
+			}
 		}
 
-		// Get the characteristic
-		int properties;
-		BluetoothGattCharacteristic characteristic = Optional.ofNullable(t.getCharacteristic()).orElse(mCharas.get(t.getCharacteristicUUID(), service));
-		if(characteristic == null || ((properties = characteristic.getProperties()) & (BluetoothGattCharacteristic.PROPERTY_WRITE | BluetoothGattCharacteristic.PROPERTY_WRITE_NO_RESPONSE)) == 0) {
-			Utils.log("writeChara characteristic is null or properties write = 0");
+		// Execute the write
+		t.setResolved(characteristic, writeType);
+		writeCharaAttempt(t);
+	}
+
+	/**
+	 * Write Chara attempt (with retry in case of gatt busy)
+	 * @param t WriteCharaTask
+	 */
+	private void writeCharaAttempt(@NonNull WriteCharaTask t) {
+		// Check if is connected
+		if(mBluetoothGatt == null) {
+			Utils.log("writeChara mBluetoothGatt is null");
 			t.getCallback().onWriteFailed();
 			signalEndOfTask();
 			return;
 		}
 
-		// Correct the write type (if needed)
-		boolean isNoResponse = t.isNoResponse();
-		if(isNoResponse && (properties & BluetoothGattCharacteristic.PROPERTY_WRITE_NO_RESPONSE) == 0) isNoResponse = false;
-		else if(!isNoResponse && (properties & BluetoothGattCharacteristic.PROPERTY_WRITE) == 0) isNoResponse = true;
-
-		// Write type
-		int writeType = isNoResponse ? BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE : BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT;
+		// Try to write
+		boolean success;
+		BluetoothGattCharacteristic characteristic = t.getResolvedCharacteristic();
+		//noinspection DataFlowIssue
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+			success = mBluetoothGatt.writeCharacteristic(characteristic, t.getData(), t.getResolvedWriteType()) == BluetoothStatusCodes.SUCCESS;
+		} else {
+			characteristic.setWriteType(t.getResolvedWriteType());
+			success = characteristic.setValue(t.getData()) && mBluetoothGatt.writeCharacteristic(characteristic);
+		}
 
-		// Retry counter
-		final int[] retry = {0};
+		// Success
+		if(success) return;
 
-		// Execute the write (with retry in case of gatt busy)
-		(new Runnable() {
-			@Override
-			public void run() {
-				// Check if is connected
-				if(mBluetoothGatt == null) {
-					Utils.log("writeChara mBluetoothGatt is null");
-					t.getCallback().onWriteFailed();
-					signalEndOfTask();
-					return;
-				}
+		// Failed
+		Utils.log("writeChara failed to initiate the write retry=" + t.getRetry());
 
-				// Try to write
-				boolean success;
-				if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
-					success = mBluetoothGatt.writeCharacteristic(characteristic, t.getData(), writeType) == BluetoothStatusCodes.SUCCESS;
-				} else {
-					characteristic.setWriteType(writeType);
-					success = characteristic.setValue(t.getData()) && mBluetoothGatt.writeCharacteristic(characteristic);
-				}
+		// Retry
+		if(t.getRetry() < 100) {
+			t.incrementRetry();
+			mHandler.postDelayed(mRetryPendingTask, 50);
+		} else {
+			// Failed
+			t.getCallback().onWriteFailed();
+			signalEndOfTask();
+		}
+	}
 
-				// Success
-				if(success) return;
+	/**
+	 * Get the write type of a characteristic (corrected if the requested one is not supported)
+	 * @param characteristic The characteristic
+	 * @param noResponse Write without response requested
+	 * @return int (WriteCharaTask.WRITE_TYPE_AUTO if the characteristic is not writable)
+	 */
+	static int getWriteType(@NonNull BluetoothGattCharacteristic characteristic, boolean noResponse) {
+		int properties = characteristic.getProperties();
+		if((properties & (BluetoothGattCharacteristic.PROPERTY_WRITE | BluetoothGattCharacteristic.PROPERTY_WRITE_NO_RESPONSE)) == 0) return WriteCharaTask.WRITE_TYPE_AUTO;
 
-				// Failed
-				Utils.log("writeChara failed to initiate the write retry=" + retry[0]);
+		// Correct the write type (if needed)
+		if(noResponse && (properties & BluetoothGattCharacteristic.PROPERTY_WRITE_NO_RESPONSE) == 0) noResponse = false;
+		else if(!noResponse && (properties & BluetoothGattCharacteristic.PROPERTY_WRITE) == 0) noResponse = true;
 
-				// Retry
-				if(retry[0] < 100) {
-					retry[0]++;
-					mHandler.postDelayed(this, 50);
-				} else {
-					// Failed
-					t.getCallback().onWriteFailed();
-					signalEndOfTask();
-				}
-			}
-		}).run();
+		return noResponse ? BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE : BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT;
 	}
 
 	/**
@@ -824,7 +1599,7 @@ public class DeviceOperation {
 		}
 
 		// Get the service
-		BluetoothGattService service = Optional.ofNullable(t.getService()).orElse(mServices.get(t.getServiceUUID(), mBluetoothGatt));
+		BluetoothGattService service = t.getService() != null ? t.getService() : mIndex.getService(t.getServiceUUID());
 		if(service == null) {
 			Utils.log("splittedWriteChara service is null");
 			t.getCallback().onWriteFailed();
@@ -834,7 +1609,7 @@ public class DeviceOperation {
 
 		// Get the characteristic
 		int properties;
-		BluetoothGattCharacteristic characteristic = Optional.ofNullable(t.getCharacteristic()).orElse(mCharas.get(t.getCharacteristicUUID(), service));
+		BluetoothGattCharacteristic characteristic = t.getCharacteristic() != null ? t.getCharacteristic() : mIndex.getCharacteristic(service.getUuid(), t.getCharacteristicUUID());
 		if(characteristic == null || ((properties = characteristic.getProperties()) & (BluetoothGattCharacteristic.PROPERTY_WRITE | BluetoothGattCharacteristic.PROPERTY_WRITE_NO_RESPONSE)) == 0) {
 			Utils.log("splittedWriteChara characteristic is null or properties write = 0");
 			t.getCallback().onWriteFailed();
@@ -847,12 +1622,24 @@ public class DeviceOperation {
 		if(isNoResponse && (properties & BluetoothGattCharacteristic.PROPERTY_WRITE_NO_RESPONSE) == 0) isNoResponse = false;
 		else if(!isNoResponse && (properties & BluetoothGattCharacteristic.PROPERTY_WRITE) == 0) isNoResponse = true;
 
+		// Pipelined write => write no response required (the flow control relies on it)
+		if(t instanceof PipelinedWriteCharaTask && !isNoResponse) {
+			Utils.log("pipelinedWriteChara property write no response = 0");
+			t.getCallback().onWriteFailed();
+			signalEndOfTask();
+			return;
+		}
+
 		// Write type
 		int writeType = isNoResponse ? BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE : BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT;
 
-		// Split data and fill the queue
-		Utils.splitBytesArrayAndFillQueue(t.getData(), t.getSplitSize(), t.getQueue());
-		t.setTotalPkg();
+		// Chunk size (automatic when splitSize <= 0, never above the MTU payload for write no response)
+		int maxPayload = mMtu - 3;
+		int splitSize = t.getSplitSize();
+		int chunkSize = splitSize <= 0 ? maxPayload : (isNoResponse ? Math.min(splitSize, maxPayload) : splitSize);
+
+		// Prepare the chunks (lazy windows over the data)
+		t.prepareChunks(chunkSize);
 
 		// Callback
 		BleSplittedWriteCallback callback = t.getCallback();
@@ -860,12 +1647,110 @@ public class DeviceOperation {
 		// Retry counter
 		final int[] retry = {0};
 
+		// Pipelined write
+		if(t instanceof PipelinedWriteCharaTask p) {
+			p.start();
+
+			// Keep the controller buffer full (resumed by onCharacteristicWrite)
+			(p.setRunnable(new Runnable() {
+				@Override
+				public void run() {
+					// Failed, wait for the packets in flight
+					if(p.isFailed()) return;
+
+					// Send packets as long as the stack accepts them
+					byte[] data;
+					while((data = peekChunk(p)) != null) {
+						// Check if is connected
+						if(mBluetoothGatt == null) {
+							Utils.log("pipelinedWriteChara mBluetoothGatt is null");
+							callback.onWriteFailed();
+							signalEndOfTask();
+							return;
+						}
+
+						// Try to write
+						int status;
+						if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+							status = mBluetoothGatt.writeCharacteristic(characteristic, data, writeType);
+						} else {
+							// Before Android 13 a refused write means the gatt is busy
+							characteristic.setWriteType(writeType);
+							status = characteristic.setValue(data) && mBluetoothGatt.writeCharacteristic(characteristic) ? BluetoothStatusCodes.SUCCESS : BluetoothStatusCodes.ERROR_GATT_WRITE_REQUEST_BUSY;
+						}
+
+						// Success => next pkg
+						if(status == BluetoothStatusCodes.SUCCESS) {
+							p.nextChunk();
+							p.onPacketSent(data.length);
+							retry[0] = 0;
+							continue;
+						}
+
+						// Busy => backpressure
+						if(status == BluetoothStatusCodes.ERROR_GATT_WRITE_REQUEST_BUSY) break;
+
+						// Failed
+						Utils.log("pipelinedWriteChara failed to initiate the write status=" + status);
+						p.setFailed();
+						if(p.getInFlight() == 0) {
+							callback.onWriteFailed();
+							signalEndOfTask();
+						}
+						return;
+					}
+
+					// Source read error
+					if(p.isFailed()) {
+						if(p.getInFlight() == 0) {
+							callback.onWriteFailed();
+							signalEndOfTask();
+						}
+						return;
+					}
+
+					// All packets sent and acknowledged
+					if(data == null) {
+						if(p.getInFlight() == 0) {
+							callback.onWriteSuccess();
+							signalEndOfTask();
+						}
+						return;
+					}
+
+					// A packet in flight will resume the pipeline
+					if(p.getInFlight() > 0) return;
+
+					// Busy without packet in flight (no write callback will come)
+					Utils.log("pipelinedWriteChara gatt busy retry=" + retry[0]);
+
+					// Retry
+					if(retry[0] < 100) {
+						retry[0]++;
+						mHandler.postDelayed(this, 50);
+					} else {
+						// Failed
+						callback.onWriteFailed();
+						signalEndOfTask();
+					}
+				}
+			})).run();
+			return;
+		}
+
 		// Execute the write (with retry in case of gatt busy)
 		(t.setRunnable(new Runnable() {
 			@Override
 			public void run() {
 				// Peek
-				byte[] data = t.peekQueue();
+				byte[] data = peekChunk(t);
+
+				// Source read error
+				if(t.isFailed()) {
+					callback.onWriteFailed();
+					signalEndOfTask();
+					return;
+				}
 
 				// Success
 				if(data == null) {
@@ -893,8 +1778,8 @@ public class DeviceOperation {
 
 				// Success
 				if(success) {
-					// Remove pkg from the queue
-					t.pollQueue();
+					// Move to the next pkg
+					t.nextChunk();
 					return;
 				}
 
@@ -915,55 +1800,229 @@ public class DeviceOperation {
 	}
 
 	/**
-	 * Enable notify
-	 * @param t EnableNotifyTask
+	 * Reliable write (prepare/execute transaction)
+	 * @param t ReliableWriteTask
 	 */
-	private void enableNotify(@NonNull EnableNotifyTask t) {
-		Utils.log("execute EnableNotifyTask");
+	private void reliableWrite(@NonNull ReliableWriteTask t) {
+		Utils.log("execute ReliableWriteTask");
 
 		// Check if is connected
 		if(mBluetoothGatt == null) {
-			Utils.log("enableNotify mBluetoothGatt is null");
-			t.getCallback().onNotifyDisabled();
+			Utils.log("reliableWrite mBluetoothGatt is null");
+			t.getCallback().onWriteFailed();
 			signalEndOfTask();
 			return;
 		}
 
-		// Get the service
-		BluetoothGattService service = Optional.ofNullable(t.getService()).orElse(mServices.get(t.getServiceUUID(), mBluetoothGatt));
-		if(service == null) {
-			Utils.log("enableNotify service is null");
-			t.getCallback().onNotifyDisabled();
+		// Nothing to write
+		List<ReliableWriteTask.Write> writes = t.getWrites();
+		if(writes.isEmpty()) {
+			t.getCallback().onWriteSuccess();
 			signalEndOfTask();
 			return;
 		}
 
-		// Get the characteristic
-		BluetoothGattCharacteristic characteristic = Optional.ofNullable(t.getCharacteristic()).orElse(mCharas.get(t.getCharacteristicUUID(), service));
-		if(characteristic == null || (characteristic.getProperties() & (BluetoothGattCharacteristic.PROPERTY_NOTIFY | BluetoothGattCharacteristic.PROPERTY_INDICATE)) == 0) {
-			Utils.log("enableNotify characteristic is null or (property notify and property indicate) = 0");
-			t.getCallback().onNotifyDisabled();
-			signalEndOfTask();
-			return;
-		}
+		// Resolve all the characteristics before starting the transaction
+		BluetoothGattCharacteristic[] characteristics = new BluetoothGattCharacteristic[writes.size()];
+		for(int i = 0; i < characteristics.length; i++) {
+			ReliableWriteTask.Write write = writes.get(i);
 
-		// Enable notification
-		if(!mBluetoothGatt.setCharacteristicNotification(characteristic, true)) {
+			BluetoothGattCharacteristic characteristic = write.getCharacteristic();
+			if(characteristic == null) {
+				BluetoothGattService service = write.getService() != null ? write.getService() : mIndex.getService(write.getServiceUUID());
+				if(service != null) characteristic = mIndex.getCharacteristic(service.getUuid(), write.getCharacteristicUUID());
+			}
+
+			// Prepared writes require the write (with response) property
+			if(characteristic == null || (characteristic.getProperties() & BluetoothGattCharacteristic.PROPERTY_WRITE) == 0) {
+				Utils.log("reliableWrite characteristic is null or property write = 0");
+				t.getCallback().onWriteFailed();
+				signalEndOfTask();
+				return;
+			}
+
+			characteristics[i] = characteristic;
+		}
+		t.setCharacteristics(characteristics);
+
+		// Begin the transaction
+		if(!mBluetoothGatt.beginReliableWrite()) {
+			Utils.log("reliableWrite failed to begin the reliable write");
+			t.getCallback().onWriteFailed();
+			signalEndOfTask();
+			return;
+		}
+
+		reliableWriteNext(t);
+	}
+
+	/**
+	 * Reliable write: prepare the next write, or execute the transaction when all writes are prepared
+	 * @param t ReliableWriteTask
+	 */
+	private void reliableWriteNext(@NonNull ReliableWriteTask t) {
+		ReliableWriteTask.Write write = t.getCurrentWrite();
+		BluetoothGattCharacteristic characteristic = t.getCurrentCharacteristic();
+
+		// Check if is connected
+		if(mBluetoothGatt == null) {
+			Utils.log("reliableWrite mBluetoothGatt is null");
+			t.getCallback().onWriteFailed();
+			signalEndOfTask();
+			return;
+		}
+
+		// All writes prepared => execute
+		if(write == null || characteristic == null) {
+			t.setExecuting();
+			if(!mBluetoothGatt.executeReliableWrite()) {
+				Utils.log("reliableWrite failed to execute the reliable write");
+				abortReliableWrite(t);
+			}
+			return;
+		}
+
+		// Retry counter
+		final int[] retry = {0};
+
+		// Execute the write (with retry in case of gatt busy)
+		(new Runnable() {
+			@Override
+			public void run() {
+				// Check if is connected
+				if(mBluetoothGatt == null) {
+					Utils.log("reliableWrite mBluetoothGatt is null");
+					t.getCallback().onWriteFailed();
+					signalEndOfTask();
+					return;
+				}
+
+				// Try to write
+				boolean success;
+				if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+					success = mBluetoothGatt.writeCharacteristic(characteristic, write.getData(), BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT) == BluetoothStatusCodes.SUCCESS;
+				} else {
+					characteristic.setWriteType(BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT);
+					success = characteristic.setValue(write.getData()) && mBluetoothGatt.writeCharacteristic(characteristic);
+				}
+
+				// Success
+				if(success) return;
+
+				// Failed
+				Utils.log("reliableWrite failed to initiate the write retry=" + retry[0]);
+
+				// Retry
+				if(retry[0] < 100) {
+					retry[0]++;
+					mHandler.postDelayed(this, 50);
+				} else {
+					// Failed
+					abortReliableWrite(t);
+				}
+			}
+		}).run();
+	}
+
+	/**
+	 * Abort a reliable write
+	 * @param t ReliableWriteTask
+	 */
+	private void abortReliableWrite(@NonNull ReliableWriteTask t) {
+		if(mBluetoothGatt != null) mBluetoothGatt.abortReliableWrite();
+		t.getCallback().onWriteFailed();
+		signalEndOfTask();
+	}
+
+	/**
+	 * Peek the current chunk of a splitted write
+	 * @param t SplittedWriteCharaTask
+	 * @return byte[] or null when all chunks have been sent or on read error
+	 */
+	@Nullable
+	private byte[] peekChunk(@NonNull SplittedWriteCharaTask t) {
+		try {
+			return t.peekChunk();
+		} catch (IOException e) {
+			Utils.log("splittedWriteChara failed to read the source " + e.getMessage());
+			t.setFailed();
+			return null;
+		}
+	}
+
+	/**
+	 * Enable notify
+	 * @param t EnableNotifyTask
+	 */
+	private void enableNotify(@NonNull EnableNotifyTask t) {
+		Utils.log("execute EnableNotifyTask");
+
+		// Check if is connected
+		if(mBluetoothGatt == null) {
+			Utils.log("enableNotify mBluetoothGatt is null");
+			t.notifyDisabled();
+			signalEndOfTask();
+			return;
+		}
+
+		// Get the service
+		BluetoothGattService service = t.getService() != null ? t.getService() : mIndex.getService(t.getServiceUUID());
+		if(service == null) {
+			Utils.log("enableNotify service is null");
+			t.notifyDisabled();
+			signalEndOfTask();
+			return;
+		}
+
+		// Get the characteristic
+		BluetoothGattCharacteristic characteristic = t.getCharacteristic() != null ? t.getCharacteristic() : mIndex.getCharacteristic(service.getUuid(), t.getCharacteristicUUID());
+		if(characteristic == null || (characteristic.getProperties() & (BluetoothGattCharacteristic.PROPERTY_NOTIFY | BluetoothGattCharacteristic.PROPERTY_INDICATE)) == 0) {
+			Utils.log("enableNotify characteristic is null or (property notify and property indicate) = 0");
+			t.notifyDisabled();
+			signalEndOfTask();
+			return;
+		}
+
+		// Already subscribed by someone else => no descriptor write
+		NotifyBatcher batcher = t.getBatchSettings() != null && t.getCallback() instanceof BleBatchNotifyCallback callback ? new NotifyBatcher(t.getBatchSettings(), callback, mHandler) : null;
+		NotifySubscription.Key key = NotifySubscription.Key.of(characteristic);
+		NotifySubscription subscription = mNotifySubscriptions.get(key);
+		if(subscription != null) {
+			if(subscription.add(t.getCallback(), batcher)) {
+				t.notifyEnabled();
+			} else {
+				// Duplicate subscriber => no-op (its batcher is never used)
+				Utils.log("enableNotify callback already subscribed");
+				if(batcher != null) batcher.close();
+				t.notifyAlreadyEnabled();
+			}
+
+			signalEndOfTask();
+			return;
+		}
+
+		// Enable notification
+		if(!mBluetoothGatt.setCharacteristicNotification(characteristic, true)) {
 			Utils.log("enableNotify failed to enable characteristic notification");
-			t.getCallback().onNotifyDisabled();
+			t.notifyDisabled();
+			signalEndOfTask();
 			return;
 		}
 
 		// Get the descriptor
-		BluetoothGattDescriptor descriptor = characteristic.getDescriptor(t.getDescriptorUUID());
+		BluetoothGattDescriptor descriptor = getDescriptor(characteristic, t.getDescriptorUUID());
 		if(descriptor == null) {
 			Utils.log("enableNotify descriptor is null");
-			t.getCallback().onNotifyDisabled();
+			mBluetoothGatt.setCharacteristicNotification(characteristic, false);
+			t.notifyDisabled();
+			signalEndOfTask();
 			return;
 		}
 
-		// Set the callback
-		mNotifyCallbacks.put(characteristic.getUuid(), t.getCallback());
+		// Set the first subscriber
+		subscription = new NotifySubscription(characteristic);
+		subscription.add(t.getCallback(), batcher);
+		mNotifySubscriptions.put(key, subscription);
 
 		// Retry counter
 		final int[] retry = {0};
@@ -975,8 +2034,8 @@ public class DeviceOperation {
 				// Check if is connected
 				if(mBluetoothGatt == null) {
 					Utils.log("enableNotify mBluetoothGatt is null");
-					mNotifyCallbacks.remove(characteristic.getUuid());
-					t.getCallback().onNotifyDisabled();
+					removeSubscription(key);
+					t.notifyDisabled();
 					signalEndOfTask();
 					return;
 				}
@@ -1001,9 +2060,9 @@ public class DeviceOperation {
 					mHandler.postDelayed(this, 50);
 				} else {
 					// Failed
-					mNotifyCallbacks.remove(characteristic.getUuid());
+					removeSubscription(key);
 					mBluetoothGatt.setCharacteristicNotification(characteristic, false);
-					t.getCallback().onNotifyDisabled();
+					t.notifyDisabled();
 					signalEndOfTask();
 				}
 			}
@@ -1017,36 +2076,65 @@ public class DeviceOperation {
 	private void disableNotify(@NonNull DisableNotifyTask t) {
 		Utils.log("execute DisableNotifyTask");
 
-		// Remove the callback
-		//noinspection DataFlowIssue
-		BleNotifyCallback callback = mNotifyCallbacks.remove(Optional.ofNullable(t.getCharacteristicUUID()).orElseGet(() -> t.getCharacteristic().getUuid()));
-		if(callback == null) return;
+		// Get the subscription (keyed by service, characteristic and instance)
+		BluetoothGattCharacteristic subscribed = t.getCharacteristic() != null ? t.getCharacteristic() : mIndex.getCharacteristic(t.getService() != null ? t.getService().getUuid() : t.getServiceUUID(), t.getCharacteristicUUID());
+		NotifySubscription.Key key = subscribed != null ? NotifySubscription.Key.of(subscribed) : null;
+		NotifySubscription subscription = key != null ? mNotifySubscriptions.get(key) : null;
+		if(subscription == null) {
+			Utils.log("disableNotify not subscribed");
+			signalEndOfTask();
+			return;
+		}
+
+		// Remove a single subscriber
+		BleNotifyCallback[] callbacks;
+		if(t.getCallback() != null) {
+			if(!subscription.remove(t.getCallback())) {
+				Utils.log("disableNotify callback not subscribed");
+				signalEndOfTask();
+				return;
+			}
+
+			callbacks = new BleNotifyCallback[]{t.getCallback()};
+
+			// Other subscribers left => no descriptor write
+			if(!subscription.isEmpty()) {
+				notifyDisabled(callbacks);
+				signalEndOfTask();
+				return;
+			}
+		} else {
+			callbacks = subscription.getCallbacks();
+		}
+
+		// Last subscriber => remove the subscription
+		removeSubscription(key);
 
-		// Save the callback for onDescriptorWrite
-		t.setCallback(callback);
+		// Save the callbacks for onDescriptorWrite
+		t.setRemovedCallbacks(callbacks);
 
 		// Check if is connected
 		if(mBluetoothGatt == null) {
 			Utils.log("disableNotify mBluetoothGatt is null");
-			callback.onNotifyDisabled();
+			notifyDisabled(callbacks);
 			signalEndOfTask();
 			return;
 		}
 
 		// Get the service
-		BluetoothGattService service = Optional.ofNullable(t.getService()).orElse(mServices.get(t.getServiceUUID(), mBluetoothGatt));
+		BluetoothGattService service = t.getService() != null ? t.getService() : mIndex.getService(t.getServiceUUID());
 		if(service == null) {
 			Utils.log("disableNotify service is null");
-			callback.onNotifyDisabled();
+			notifyDisabled(callbacks);
 			signalEndOfTask();
 			return;
 		}
 
 		// Get the characteristic
-		BluetoothGattCharacteristic characteristic = Optional.ofNullable(t.getCharacteristic()).orElse(mCharas.get(t.getCharacteristicUUID(), service));
+		BluetoothGattCharacteristic characteristic = t.getCharacteristic() != null ? t.getCharacteristic() : mIndex.getCharacteristic(service.getUuid(), t.getCharacteristicUUID());
 		if(characteristic == null) {
 			Utils.log("disableNotify characteristic is null");
-			callback.onNotifyDisabled();
+			notifyDisabled(callbacks);
 			signalEndOfTask();
 			return;
 		}
@@ -1056,10 +2144,11 @@ public class DeviceOperation {
 		Utils.log("disableNotify setCharacteristicNotification=" + stopNotif);
 
 		// Get the descriptor
-		BluetoothGattDescriptor descriptor = characteristic.getDescriptor(t.getDescriptorUUID());
+		BluetoothGattDescriptor descriptor = getDescriptor(characteristic, t.getDescriptorUUID());
 		if(descriptor == null) {
 			Utils.log("disableNotify descriptor is null");
-			callback.onNotifyDisabled();
+			notifyDisabled(callbacks);
+			signalEndOfTask();
 			return;
 		}
 
@@ -1073,7 +2162,7 @@ public class DeviceOperation {
 				// Check if is connected
 				if(mBluetoothGatt == null) {
 					Utils.log("disableNotify mBluetoothGatt is null");
-					callback.onNotifyDisabled();
+					notifyDisabled(callbacks);
 					signalEndOfTask();
 					return;
 				}
@@ -1098,7 +2187,7 @@ public class DeviceOperation {
 					mHandler.postDelayed(this, 50);
 				} else {
 					// Failed
-					callback.onNotifyDisabled();
+					notifyDisabled(callbacks);
 					signalEndOfTask();
 				}
 			}
@@ -1121,7 +2210,7 @@ public class DeviceOperation {
 		}
 
 		// Get the service
-		BluetoothGattService service = Optional.ofNullable(t.getService()).orElse(mServices.get(t.getServiceUUID(), mBluetoothGatt));
+		BluetoothGattService service = t.getService() != null ? t.getService() : mIndex.getService(t.getServiceUUID());
 		if(service == null) {
 			Utils.log("readDesc service is null");
 			t.getCallback().onReadFailed();
@@ -1130,7 +2219,7 @@ public class DeviceOperation {
 		}
 
 		// Get the characteristic
-		BluetoothGattCharacteristic characteristic = Optional.ofNullable(t.getCharacteristic()).orElse(mCharas.get(t.getCharacteristicUUID(), service));
+		BluetoothGattCharacteristic characteristic = t.getCharacteristic() != null ? t.getCharacteristic() : mIndex.getCharacteristic(service.getUuid(), t.getCharacteristicUUID());
 		if(characteristic == null) {
 			Utils.log("readDesc characteristic is null");
 			t.getCallback().onReadFailed();
@@ -1139,7 +2228,7 @@ public class DeviceOperation {
 		}
 
 		// Get the descriptor
-		BluetoothGattDescriptor descriptor = Optional.ofNullable(t.getDescriptor()).orElse(characteristic.getDescriptor(t.getDescriptorUUID()));
+		BluetoothGattDescriptor descriptor = t.getDescriptor() != null ? t.getDescriptor() : getDescriptor(characteristic, t.getDescriptorUUID());
 		if(descriptor == null) {
 			Utils.log("readDesc descriptor is null");
 			t.getCallback().onReadFailed();
@@ -1196,7 +2285,7 @@ public class DeviceOperation {
 		}
 
 		// Get the service
-		BluetoothGattService service = Optional.ofNullable(t.getService()).orElse(mServices.get(t.getServiceUUID(), mBluetoothGatt));
+		BluetoothGattService service = t.getService() != null ? t.getService() : mIndex.getService(t.getServiceUUID());
 		if(service == null) {
 			Utils.log("writeDesc service is null");
 			t.getCallback().onWriteFailed();
@@ -1205,7 +2294,7 @@ public class DeviceOperation {
 		}
 
 		// Get the characteristic
-		BluetoothGattCharacteristic characteristic = Optional.ofNullable(t.getCharacteristic()).orElse(mCharas.get(t.getCharacteristicUUID(), service));
+		BluetoothGattCharacteristic characteristic = t.getCharacteristic() != null ? t.getCharacteristic() : mIndex.getCharacteristic(service.getUuid(), t.getCharacteristicUUID());
 		if(characteristic == null) {
 			Utils.log("writeDesc characteristic is null");
 			t.getCallback().onWriteFailed();
@@ -1214,7 +2303,7 @@ public class DeviceOperation {
 		}
 
 		// Get the descriptor
-		BluetoothGattDescriptor descriptor = Optional.ofNullable(t.getDescriptor()).orElse(characteristic.getDescriptor(t.getDescriptorUUID()));
+		BluetoothGattDescriptor descriptor = t.getDescriptor() != null ? t.getDescriptor() : getDescriptor(characteristic, t.getDescriptorUUID());
 		if(descriptor == null) {
 			Utils.log("writeDesc descriptor is null");
 			t.getCallback().onWriteFailed();
@@ -1267,53 +2356,766 @@ public class DeviceOperation {
 	 * Disconnect the device
 	 */
 	public void disconnect(boolean destroy) {
-		mHandler.post(() -> {
-			Utils.log("disconnect destroy=" + destroy);
+		// Connect failed if still connecting
+		mHandler.post(() -> disconnect(destroy, mState == BleGattCallback.CONNECTING, BleGattCallback.REASON_NONE));
+	}
+
+	/**
+	 * Connection failed => Disconnect
+	 * @param reason BleGattCallback.REASON_xxx
+	 */
+	private void fail(int reason) {
+		mHandler.post(() -> disconnect(false, mState == BleGattCallback.CONNECTING, reason));
+	}
+
+	/**
+	 * Disconnect the device (on the device thread)
+	 * @param destroy Destroy the thread
+	 * @param connectFailed Reported to onDisconnected
+	 * @param reason BleGattCallback.REASON_xxx
+	 */
+	private void disconnect(boolean destroy, boolean connectFailed, int reason) {
+		Utils.log("disconnect destroy=" + destroy + " reason=" + reason);
+		mLastDisconnectReason = reason;
+
+		// Disconnect and clean
+		releaseLink();
+		mEvicted = false;
+		mResuming = false;
+		mReconnecting = false;
+		mResumeNotifies = null;
+		setState(BleGattCallback.DISCONNECTED);
+
+		// Callback
+		if(mCallback != null) {
+			mCallback.onDisconnected(connectFailed, reason);
+			setGattCallback(null);
+		}
+
+		// Destroy the thread
+		if(destroy) mHandlerThread.quit();
+	}
+
+	/**
+	 * Close the link and clean the connection state (the callback and the profile are kept)
+	 */
+	private void releaseLink() {
+		releaseLink(false);
+	}
+
+	/**
+	 * Close the link and clean the connection state (the callback and the profile are kept)
+	 * @param keepTasks Keep the queued tasks (run after the next connection)
+	 */
+	private void releaseLink(boolean keepTasks) {
+		// Disconnect
+		if(mBluetoothGatt != null) {
+			// Clear device cache (must be call before close)
+			if(shouldRefreshCache()) clearDeviceCache();
+			mCacheRefreshNeeded = false;
+
+			// Use close instead disconnect to avoid weird behavior (never use disconnect before close)
+			mBluetoothGatt.close();
+			setBluetoothGatt(null);
+		}
+
+		// Free the connection slot
+		mConnectGeneration++;
+		mScheduler.release(this);
+		mPendingPool.release(this);
+		mScanCoexistence.setConnecting(this, false);
+
+		// Clean
+		GattBatchTask batch = mBatch;
+		mBatch = null;
+		if(!keepTasks) {
+			synchronized(mTasksQueue) {
+				mTasksQueue.clear();
+			}
+		}
+		setPendingTask(null);
+		mBringingUp = false;
+		if(batch != null) batch.finish();
+		mHandler.removeCallbacksAndMessages(null);
+		mUiHandler.removeCallbacksAndMessages(null);
+		mIndex = GattIndex.EMPTY;
+		mValueCache.clear();
+		for(NotifySubscription subscription : mNotifySubscriptions.values()) subscription.close();
+		mNotifySubscriptions.clear();
+		setMtu(23);
+	}
+
+	/**
+	 * Set the reconnect policy (null = no automatic reconnection)
+	 * @param policy ReconnectPolicy
+	 */
+	public void setReconnectPolicy(@Nullable ReconnectPolicy policy) {
+		mReconnectPolicy = policy;
+	}
+
+	/**
+	 * Get the reconnection stats
+	 * @return ReconnectStats
+	 */
+	@NonNull
+	public ReconnectStats getReconnectStats() {
+		int reconnected = mReconnected;
+		return new ReconnectStats(mLinkLosses, reconnected, mReconnectFailed, mLastReconnectDuration, reconnected == 0 ? -1 : mTotalReconnectDuration / reconnected);
+	}
+
+	/**
+	 * Set the idle timeout (the link is closed when no task completed for this time, reopened by the next task)
+	 * @param idleTimeout long (ms, 0 = never)
+	 */
+	public void setIdleTimeout(long idleTimeout) {
+		mIdleTimeout = Math.max(0, idleTimeout);
+		mHandler.post(this::scheduleIdleCheck);
+	}
+
+	/**
+	 * Get the time of the last completed task (or of the connection)
+	 * @return long (SystemClock.elapsedRealtime)
+	 */
+	public long getLastActivity() {
+		return mLastActivity;
+	}
 
-			// Disconnect
-			if(mBluetoothGatt != null) {
-				// Clear device cache (must be call before close)
-				clearDeviceCache();
+	/**
+	 * Check if the link can be closed without losing anything (connected, no task, no notification)
+	 * @return boolean
+	 */
+	public boolean isIdle() {
+		if(mState != BleGattCallback.CONNECTED || mBringingUp || mPendingTask != null || !mNotifySubscriptions.isEmpty()) return false;
+
+		synchronized(mTasksQueue) {
+			return mTasksQueue.isEmpty();
+		}
+	}
 
-				// Use close instead disconnect to avoid weird behavior (never use disconnect before close)
-				mBluetoothGatt.close();
-				setBluetoothGatt(null);
+	/**
+	 * Check if the link has been closed by the connection pool
+	 * @return boolean
+	 */
+	public boolean isEvicted() {
+		return mEvicted;
+	}
+
+	/**
+	 * Idle check
+	 */
+	private final Runnable mIdleCheck = () -> {
+		long idleTimeout = mIdleTimeout;
+		if(idleTimeout <= 0) return;
+
+		long idle = SystemClock.elapsedRealtime() - mLastActivity;
+		if(idle < idleTimeout) {
+			scheduleIdleCheck();
+			return;
+		}
+
+		evict();
+	};
+
+	/**
+	 * Schedule the idle check (on the device thread)
+	 */
+	private void scheduleIdleCheck() {
+		// A waiting connection attempt may need this link slot
+		mScheduler.onIdle();
+
+		mHandler.removeCallbacks(mIdleCheck);
+		if(mIdleTimeout <= 0 || mState != BleGattCallback.CONNECTED) return;
+		mHandler.postDelayed(mIdleCheck, Math.max(0, mLastActivity + mIdleTimeout - SystemClock.elapsedRealtime()));
+	}
+
+	/**
+	 * Close an idle link (the callback and the profile are kept, the next task reconnects)
+	 */
+	public void evict() {
+		mHandler.post(() -> {
+			// From now the enqueued tasks wait for the reconnection
+			boolean idle;
+			synchronized(mTasksQueue) {
+				idle = isIdle();
+				if(idle) mEvicted = true;
 			}
 
-			// Connect failed
-			boolean connectFailed = (mState == BleGattCallback.CONNECTING);
+			// No longer idle => the scheduler may pick another link
+			if(!idle) {
+				mScheduler.onEvictCancelled(this);
+				return;
+			}
 
-			// Clean
-			mTasksQueue.clear();
-			setPendingTask(null);
-			mHandler.removeCallbacksAndMessages(null);
-			mUiHandler.removeCallbacksAndMessages(null);
-			mCharas.clear();
-			mServices.clear();
-			mNotifyCallbacks.clear();
+			Utils.log("evict idle link mac=" + mDevice.getMac());
+			releaseLink(true);
 			setState(BleGattCallback.DISCONNECTED);
-			setMtu(23);
 
-			// Callback
-			if(mCallback != null) {
-				mCallback.onDisconnected(connectFailed);
-				setGattCallback(null);
+			// A task has been enqueued meanwhile
+			boolean hasTasks;
+			synchronized(mTasksQueue) {
+				hasTasks = !mTasksQueue.isEmpty();
 			}
+			if(hasTasks) resume();
+		});
+	}
+
+	/**
+	 * Reconnect an evicted link (a task has been enqueued)
+	 */
+	private void resume() {
+		if(!mEvicted || mState != BleGattCallback.DISCONNECTED) return;
+		Utils.log("resume evicted link mac=" + mDevice.getMac());
+
+		mResuming = true;
+		mEvicted = false;
+		mConnectStart = mStageStart = SystemClock.elapsedRealtime();
+		setState(BleGattCallback.CONNECTING);
+		if(mCallback != null) mCallback.onConnecting();
+		startConnect(0);
+	}
+
+	/**
+	 * Set the adaptive link policy (null = disabled, the priority and the PHY are left as they are)
+	 * @param policy AdaptiveLinkPolicy
+	 */
+	public void setAdaptiveLink(@Nullable AdaptiveLinkPolicy policy) {
+		mLinkPolicy = policy;
+		mHandler.post(this::startLinkManager);
+	}
+
+	/**
+	 * Start (or stop) the adaptive link checks (on the device thread)
+	 */
+	private void startLinkManager() {
+		mHandler.removeCallbacks(mLinkCheck);
+		if(mLinkPolicy == null || mState != BleGattCallback.CONNECTED) return;
+
+		// Unknown => the first check requests the target values
+		mLinkPriority = -1;
+		mLinkPriorityPending = -1;
+		mLinkPhy = -1;
+		mLinkPhyPending = -1;
+		mLinkPhyRejected = -1;
+		mCodedPhy = false;
+		mLastBulk = 0;
+		mLastRssiRead = 0;
+		mHandler.post(mLinkCheck);
+	}
 
-			// Destroy the thread
-			if(destroy) mHandlerThread.quit();
+	/**
+	 * Adaptive link check (priority HIGH and 2M PHY during bulk activity, idle priority after the idle delay, coded PHY when far)
+	 */
+	private final Runnable mLinkCheck = new Runnable() {
+		@Override
+		public void run() {
+			AdaptiveLinkPolicy policy = mLinkPolicy;
+			if(policy == null || mState != BleGattCallback.CONNECTED) return;
+			long now = SystemClock.elapsedRealtime();
+
+			// Live traffic (the idle delay is the hysteresis)
+			if(getQueuedBytes() >= policy.getBulkBytes() || getNotifyRate() >= policy.getBulkNotifyRate()) mLastBulk = now;
+			boolean active = mLastBulk > 0 && now - mLastBulk < policy.getIdleDelay();
+
+			// Connection priority
+			setLinkPriority(active ? BluetoothGatt.CONNECTION_PRIORITY_HIGH : policy.getIdlePriority());
+
+			// RSSI for the coded PHY
+			if(policy.getCodedPhyRssi() != AdaptiveLinkPolicy.RSSI_DISABLED && now - mLastRssiRead >= policy.getRssiInterval()) {
+				mLastRssiRead = now;
+				enqueueLinkTask(new ReadRssiTask(rssi -> onLinkRssi(policy, rssi)));
+			}
+
+			// PHY (Android 8+)
+			if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+				if(mCodedPhy) setLinkPhy(BluetoothDevice.PHY_LE_CODED);
+				else setLinkPhy(active && policy.isUse2MPhy() ? BluetoothDevice.PHY_LE_2M : BluetoothDevice.PHY_LE_1M);
+			}
+
+			mHandler.postDelayed(this, policy.getCheckInterval());
+		}
+	};
+
+	/**
+	 * RSSI read by the adaptive link (coded PHY below the threshold, back above threshold + hysteresis)
+	 * @param policy AdaptiveLinkPolicy
+	 * @param rssi int
+	 */
+	private void onLinkRssi(@NonNull AdaptiveLinkPolicy policy, int rssi) {
+		if(!mCodedPhy && rssi < policy.getCodedPhyRssi()) mCodedPhy = true;
+		else if(mCodedPhy && rssi > policy.getCodedPhyRssi() + policy.getRssiHysteresis()) mCodedPhy = false;
+	}
+
+	/**
+	 * Request a connection priority if changed (applied once the stack accepted it)
+	 * @param priority BluetoothGatt.CONNECTION_PRIORITY_xxx
+	 */
+	private void setLinkPriority(int priority) {
+		if(priority == mLinkPriority || priority == mLinkPriorityPending) return;
+		Utils.log("adaptive link priority=" + priority);
+		mLinkPriorityPending = priority;
+
+		enqueueLinkTask(new ConnectionPriorityTask(priority, success -> {
+			if(mLinkPriorityPending == priority) mLinkPriorityPending = -1;
+			if(success) mLinkPriority = priority;
+		}));
+	}
+
+	/**
+	 * Delay before requesting again a PHY rejected by the stack or the peer (ms)
+	 */
+	private static final long PHY_RETRY_DELAY = 30000;
+
+	/**
+	 * Request a PHY if changed (the current PHY comes from onPhyUpdate)
+	 * @param phy BluetoothDevice.PHY_LE_xxx
+	 */
+	private void setLinkPhy(int phy) {
+		if(phy == mLinkPhy || phy == mLinkPhyPending) return;
+
+		// Rejected recently (not supported by the peer...) => requested again later
+		if(phy == mLinkPhyRejected && SystemClock.elapsedRealtime() - mLinkPhyRejectedAt < PHY_RETRY_DELAY) return;
+
+		Utils.log("adaptive link phy=" + phy);
+		mLinkPhyPending = phy;
+
+		int mask = phy == BluetoothDevice.PHY_LE_CODED ? BluetoothDevice.PHY_LE_CODED_MASK : (phy == BluetoothDevice.PHY_LE_2M ? BluetoothDevice.PHY_LE_2M_MASK : BluetoothDevice.PHY_LE_1M_MASK);
+		int options = phy == BluetoothDevice.PHY_LE_CODED ? BluetoothDevice.PHY_OPTION_S8 : BluetoothDevice.PHY_OPTION_NO_PREFERRED;
+		UpdatePhyTask task = new UpdatePhyTask(mask, mask, options, null);
+		task.setResultListener(success -> {
+			if(mLinkPhyPending == phy) mLinkPhyPending = -1;
+			if(success && mLinkPhy == phy) return;
+
+			Utils.log("adaptive link phy rejected phy=" + phy);
+			mLinkPhyRejected = phy;
+			mLinkPhyRejectedAt = SystemClock.elapsedRealtime();
 		});
+		enqueueLinkTask(task);
+	}
+
+	/**
+	 * Enqueue a link task ahead of the queued tasks (a bulk transfer must not delay it)
+	 * @param task GattTask
+	 */
+	private void enqueueLinkTask(@NonNull GattTask task) {
+		synchronized(mTasksQueue) {
+			mTasksQueue.addFirst(task);
+		}
+
+		doNextTask();
+	}
+
+	/**
+	 * Get the bytes waiting to be written (pending and queued tasks)
+	 * @return long
+	 */
+	private long getQueuedBytes() {
+		long bytes;
+
+		synchronized(mTasksQueue) {
+			bytes = getTaskBytes(mPendingTask);
+			for(GattTask task : mTasksQueue) bytes += getTaskBytes(task);
+		}
+
+		return bytes;
+	}
+
+	/**
+	 * Get the bytes to write of a task
+	 * @param task GattTask
+	 * @return long (Integer.MAX_VALUE if unknown)
+	 */
+	private static long getTaskBytes(@Nullable GattTask task) {
+		return switch(task) {
+			case WriteCharaTask t -> t.getData() != null ? t.getData().length : 0;
+			case SplittedWriteCharaTask t -> {
+				long length = t.getSource().length();
+				yield length < 0 ? Integer.MAX_VALUE : Math.max(0, length - (long) t.getSentPkg() * t.getChunkSize());
+			}
+			case ReliableWriteTask t -> {
+				long length = 0;
+				for(ReliableWriteTask.Write write : t.getWrites()) length += write.getData().length;
+				yield length;
+			}
+			case null, default -> 0;
+		};
+	}
+
+	/**
+	 * Get the notification rate of all the characteristics
+	 * @return float (Hz)
+	 */
+	private float getNotifyRate() {
+		float rate = 0;
+		for(NotifySubscription subscription : mNotifySubscriptions.values()) rate += subscription.getStats().getRate();
+		return rate;
+	}
+
+	/**
+	 * Set the RSSI monitor (null = disabled)
+	 * @param monitor RssiMonitor
+	 */
+	public void setRssiMonitor(@Nullable RssiMonitor monitor) {
+		mRssiMonitor = monitor;
+		mHandler.post(this::startRssiMonitor);
+	}
+
+	/**
+	 * Start (or stop) the RSSI monitor (on the device thread, the history restarts with the link)
+	 */
+	private void startRssiMonitor() {
+		mHandler.removeCallbacks(mRssiCheck);
+		RssiMonitor monitor = mRssiMonitor;
+		if(monitor == null || mState != BleGattCallback.CONNECTED) return;
+
+		synchronized(this) {
+			mRssiHistory = new float[monitor.getHistorySize()];
+			mRssiHistoryCount = 0;
+			mRssiHistoryIndex = 0;
+		}
+
+		mRssiSmoothed = Float.NaN;
+		mRssiQuality = RssiMonitor.QUALITY_UNKNOWN;
+		mRssiDueAt = SystemClock.elapsedRealtime();
+		mHandler.post(mRssiCheck);
+	}
+
+	/**
+	 * Poll interval while the queue is busy (ms)
+	 */
+	private static final long RSSI_BUSY_POLL = 100;
+
+	/**
+	 * RSSI monitor check (the read waits for an idle queue, up to the max delay)
+	 */
+	private final Runnable mRssiCheck = new Runnable() {
+		@Override
+		public void run() {
+			RssiMonitor monitor = mRssiMonitor;
+			if(monitor == null || mState != BleGattCallback.CONNECTED) return;
+			long now = SystemClock.elapsedRealtime();
+
+			boolean idle;
+			synchronized(mTasksQueue) {
+				idle = mPendingTask == null && mTasksQueue.isEmpty();
+			}
+
+			// Busy => try again soon
+			if(!idle && now - mRssiDueAt < monitor.getMaxDelay()) {
+				mHandler.postDelayed(this, RSSI_BUSY_POLL);
+				return;
+			}
+
+			enqueueTask(new ReadRssiTask(mRssiMonitorRead));
+			mRssiDueAt = now + monitor.getInterval();
+			mHandler.postDelayed(this, monitor.getInterval());
+		}
+	};
+
+	/**
+	 * RSSI read by the monitor
+	 */
+	private final BleReadRssiCallback mRssiMonitorRead = rssi -> {
+		RssiMonitor monitor = mRssiMonitor;
+		if(monitor == null) return;
+
+		// Exponential moving average
+		float smoothed = Float.isNaN(mRssiSmoothed) ? rssi : mRssiSmoothed + monitor.getSmoothing() * (rssi - mRssiSmoothed);
+		mRssiSmoothed = smoothed;
+
+		synchronized(this) {
+			if(mRssiHistory.length > 0) {
+				mRssiHistory[mRssiHistoryIndex] = smoothed;
+				mRssiHistoryIndex = (mRssiHistoryIndex + 1) % mRssiHistory.length;
+				mRssiHistoryCount = Math.min(mRssiHistoryCount + 1, mRssiHistory.length);
+			}
+		}
+
+		monitor.getCallback().onRssi(rssi, smoothed);
+
+		// Link quality event
+		int quality = monitor.getQuality(smoothed, mRssiQuality);
+		if(quality != mRssiQuality) {
+			mRssiQuality = quality;
+			monitor.getCallback().onLinkQualityChanged(quality, smoothed);
+		}
+	};
+
+	/**
+	 * Get the smoothed RSSI
+	 * @return float (dBm, NaN if unknown)
+	 */
+	public float getSmoothedRssi() {
+		return mRssiSmoothed;
+	}
+
+	/**
+	 * Get the link quality
+	 * @return int RssiMonitor.QUALITY_xxx
+	 */
+	public int getLinkQuality() {
+		return mRssiQuality;
+	}
+
+	/**
+	 * Get the smoothed RSSI history
+	 * @return float[] (oldest first)
+	 */
+	@NonNull
+	public synchronized float[] getRssiHistory() {
+		float[] history = new float[mRssiHistoryCount];
+		int start = (mRssiHistoryIndex - mRssiHistoryCount + mRssiHistory.length) % Math.max(1, mRssiHistory.length);
+		for(int i = 0; i < mRssiHistoryCount; i++) history[i] = mRssiHistory[(start + i) % mRssiHistory.length];
+		return history;
+	}
+
+	/**
+	 * Get the reason of the last disconnection
+	 * @return int BleGattCallback.REASON_xxx
+	 */
+	public int getLastDisconnectReason() {
+		return mLastDisconnectReason;
+	}
+
+	/**
+	 * Connect attempt timeout (closes the gatt and frees the connection slot)
+	 */
+	private final Runnable mConnectTimeout = () -> {
+		if(mState != BleGattCallback.CONNECTING) return;
+		Utils.log("connect timeout");
+		onLinkLost(ReconnectPolicy.STATUS_CONN_FAILED_ESTABLISHMENT, BleGattCallback.REASON_CONNECT_TIMEOUT);
+	};
+
+	/**
+	 * Services discovery timeout
+	 */
+	private final Runnable mDiscoveryTimeout = () -> {
+		Utils.log("discoverServices timeout");
+
+		// Retry with backoff (the connection fails after the last attempt)
+		onDiscoveryFailed(BleGattCallback.REASON_DISCOVERY_TIMEOUT);
+	};
+
+	/**
+	 * Link lost (or connection attempt failed) => reconnect according to the policy, else disconnect
+	 * @param status The status
+	 * @param reason BleGattCallback.REASON_xxx
+	 */
+	private void onLinkLost(int status, int reason) {
+		ReconnectPolicy policy = mReconnectPolicy;
+
+		// Only a link loss (or a failed reconnection attempt), not a first connection failure
+		if(policy == null || mCallback == null || (mState != BleGattCallback.CONNECTED && !mReconnecting)) {
+			disconnect(false, mState == BleGattCallback.CONNECTING, reason);
+			return;
+		}
+
+		// New link loss
+		if(!mReconnecting) {
+			mReconnecting = true;
+			mReconnectAttempt = 0;
+			mReconnectCost = 0;
+			mLinkLostAt = SystemClock.elapsedRealtime();
+			mLinkLosses++;
+			mResumeNotifies = policy.isResumeNotifications() ? snapshotNotifications() : null;
+		}
+
+		// Retry budget exhausted
+		if(policy.isExhausted(mReconnectCost)) {
+			Utils.log("reconnect failed attempts=" + mReconnectAttempt);
+			mReconnectFailed++;
+			if(policy.getCallback() != null) policy.getCallback().onReconnectFailed(mReconnectAttempt);
+
+			// The notifications will not come back and the queued tasks will not run
+			if(mResumeNotifies != null) for(EnableNotifyTask t : mResumeNotifies) t.notifyDisabled();
+			mResumeNotifies = null;
+			failQueuedTasks();
+			disconnect(false, false, reason);
+			return;
+		}
+
+		// The pending task got no answer
+		GattTask pending = mPendingTask;
+		if(pending != null) {
+			failTask(pending);
+			pending.recycle();
+		}
+
+		// Close the link (the callback, the profile, the queued tasks and the notifications to resume are kept)
+		releaseLink(true);
+		setState(BleGattCallback.CONNECTING);
+		mCallback.onConnecting();
+
+		long delay = policy.getDelay(mReconnectAttempt, status);
+		mReconnectAttempt++;
+		mReconnectCost += ReconnectPolicy.getCost(status);
+		Utils.log("reconnect attempt=" + mReconnectAttempt + " delay=" + delay + " status=" + status);
+		if(policy.getCallback() != null) policy.getCallback().onReconnecting(mReconnectAttempt, delay, status);
+
+		mConnectStart = mStageStart = SystemClock.elapsedRealtime() + delay;
+		startConnect(delay);
+	}
+
+	/**
+	 * Fail the queued tasks (the link will not come back)
+	 */
+	private void failQueuedTasks() {
+		List<GattTask> tasks;
+		synchronized(mTasksQueue) {
+			tasks = new ArrayList<>(mTasksQueue);
+			mTasksQueue.clear();
+		}
+
+		for(GattTask task : tasks) {
+			failTask(task);
+			task.recycle();
+		}
+	}
+
+	/**
+	 * Report the failure of a task which will not be executed (or got no answer)
+	 * @param task The task
+	 */
+	private static void failTask(@NonNull GattTask task) {
+		switch(task) {
+			case GattBatchTask t -> t.finish();
+			case UpdateMtuTask t -> t.notifyResult(false);
+			case UpdatePhyTask t -> t.notifyResult(false);
+			case ConnectionPriorityTask t -> {
+				if(t.getListener() != null) t.getListener().onResult(false);
+			}
+			case ReadRssiTask t -> t.getCallback().onRssiFailed();
+			case ReadCharaTask t -> t.getCallback().onReadFailed();
+			case WriteCharaTask t -> t.getCallback().onWriteFailed();
+			case SplittedWriteCharaTask t -> t.getCallback().onWriteFailed();
+			case ReliableWriteTask t -> t.getCallback().onWriteFailed();
+			case EnableNotifyTask t -> t.notifyDisabled();
+			case DisableNotifyTask t -> {
+				if(t.getCallback() != null) t.getCallback().onNotifyDisabled();
+			}
+			case ReadDescTask t -> t.getCallback().onReadFailed();
+			case WriteDescTask t -> t.getCallback().onWriteFailed();
+			default -> {}
+		}
+	}
+
+	/**
+	 * Snapshot the enabled notifications (to enable them again after a reconnection)
+	 * @return List of EnableNotifyTask
+	 */
+	@NonNull
+	private List<EnableNotifyTask> snapshotNotifications() {
+		List<EnableNotifyTask> tasks = new ArrayList<>();
+
+		for(NotifySubscription subscription : mNotifySubscriptions.values()) {
+			BluetoothGattCharacteristic characteristic = subscription.getCharacteristic();
+			if(characteristic.getService() == null) continue;
+
+			UUID serviceUUID = characteristic.getService().getUuid();
+			for(NotifySubscription.Subscriber subscriber : subscription.getSubscribers()) {
+				if(subscriber.batcher != null && subscriber.callback instanceof BleBatchNotifyCallback callback) {
+					tasks.add(new EnableNotifyTask(serviceUUID, characteristic.getUuid(), Utils.NOTIFY_DESCRIPTOR_UUID, subscriber.batcher.getSettings(), callback));
+				} else {
+					tasks.add(new EnableNotifyTask(serviceUUID, characteristic.getUuid(), Utils.NOTIFY_DESCRIPTOR_UUID, subscriber.callback));
+				}
+			}
+		}
+
+		return tasks;
 	}
 
 	/**
 	 * Discover services
 	 */
 	private void discoverServices() {
+		// Learned delay, else 1600 ms when bonded (the stack is busy with the encryption), no delay when not bonded
+		Long learned = sDiscoveryDelays.get(mDevice.getMac());
+		if(learned != null) mDiscoveryDelay = learned;
+		else mDiscoveryDelay = mDevice.getDevice().getBondState() == BluetoothDevice.BOND_NONE ? 0 : DISCOVERY_DELAY_BONDED;
+
+		mDiscoveryAttempt = 0;
+		scheduleDiscovery();
+	}
+
+	/**
+	 * Schedule a services discovery attempt after the current delay
+	 */
+	private void scheduleDiscovery() {
+		Utils.log("scheduleDiscovery attempt=" + mDiscoveryAttempt + " delay=" + mDiscoveryDelay);
+
 		// Discover gatt services on ui thread to avoid rare threading issue
-		// 300 ms delay when not bonded, 1600 ms when bonded
 		mUiHandler.postDelayed(() -> {
-			if(mBluetoothGatt != null) mBluetoothGatt.discoverServices();
-		}, 300);
+			BluetoothGatt gatt = mBluetoothGatt;
+			if(gatt == null) return;
+
+			mDiscoveryStart = SystemClock.elapsedRealtime();
+			if(mProfile != null && mProfile.getDiscoveryTimeout() > 0) mHandler.postDelayed(mDiscoveryTimeout, mProfile.getDiscoveryTimeout());
+			if(!gatt.discoverServices()) mHandler.post(() -> onDiscoveryFailed(BleGattCallback.REASON_DISCOVERY_FAILED));
+		}, mDiscoveryDelay);
+	}
+
+	/**
+	 * Step down a discovery delay that succeeded at the first try
+	 * @param delay The delay (ms)
+	 * @return long The next delay to try (ms)
+	 */
+	private static long decayDiscoveryDelay(long delay) {
+		long decayed = delay / 2;
+		return decayed < DISCOVERY_RETRY_DELAY ? 0 : decayed;
+	}
+
+	/**
+	 * Services discovery failed => retry with a longer delay
+	 * @param reason BleGattCallback.REASON_xxx (reported if the connection fails)
+	 */
+	private void onDiscoveryFailed(int reason) {
+		mHandler.removeCallbacks(mDiscoveryTimeout);
+		if(mBluetoothGatt == null) return;
+		mCacheRefreshNeeded = true;
+
+		if(++mDiscoveryAttempt >= DISCOVERY_MAX_ATTEMPTS) {
+			Utils.log("discoverServices failed after " + mDiscoveryAttempt + " attempts");
+			if(mState == BleGattCallback.CONNECTING) onLinkLost(ReconnectPolicy.STATUS_GATT_ERROR, reason);
+			return;
+		}
+
+		mDiscoveryDelay = Math.min(Math.max(mDiscoveryDelay * 2, DISCOVERY_RETRY_DELAY), DISCOVERY_MAX_DELAY);
+		scheduleDiscovery();
+	}
+
+	/**
+	 * Set the GATT cache refresh policy
+	 * @param policy CACHE_REFRESH_xxx
+	 */
+	public void setCacheRefreshPolicy(int policy) {
+		mCacheRefreshPolicy = policy;
+	}
+
+	public int getCacheRefreshPolicy() {
+		return mCacheRefreshPolicy;
+	}
+
+	/**
+	 * Get the duration of the last services discovery
+	 * @return long (ms, -1 if never discovered)
+	 */
+	public long getLastDiscoveryDuration() {
+		return mLastDiscoveryDuration;
+	}
+
+	/**
+	 * Check if the GATT cache must be refreshed at disconnect
+	 * @return boolean
+	 */
+	private boolean shouldRefreshCache() {
+		return switch(mCacheRefreshPolicy) {
+			// Only after a service changed, a discovery failure or a GATT / stack error
+			case CACHE_REFRESH_ON_CHANGE -> mCacheRefreshNeeded;
+
+			// Bonded => the stack keeps the database across connections (and service changed indications)
+			case CACHE_REFRESH_NEVER_BONDED -> mDevice.getDevice().getBondState() != BluetoothDevice.BOND_BONDED;
+
+			default -> true;
+		};
 	}
 
 	/**
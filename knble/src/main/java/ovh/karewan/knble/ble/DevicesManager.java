@@ -7,10 +7,50 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 
+import ovh.karewan.knble.scan.Scanner;
 import ovh.karewan.knble.struct.BleDevice;
 
 public class DevicesManager {
 	private final ConcurrentHashMap<Long, DeviceOperation> mDevicesOp = new ConcurrentHashMap<>();
+	private final ConnectionScheduler mScheduler = new ConnectionScheduler(this::findIdleLink);
+	private final PendingConnectionPool mPendingPool = new PendingConnectionPool();
+	private final ScanCoexistence mScanCoexistence;
+	private volatile long mIdleTimeout = 0;
+
+	/**
+	 * Class constructor
+	 * @param scanner The scanner (lowered or paused by the connections)
+	 */
+	public DevicesManager(@NonNull Scanner scanner) {
+		mScanCoexistence = new ScanCoexistence(scanner);
+	}
+
+	/**
+	 * Get the scan coexistence (shared by all devices)
+	 * @return ScanCoexistence
+	 */
+	@NonNull
+	public ScanCoexistence getScanCoexistence() {
+		return mScanCoexistence;
+	}
+
+	/**
+	 * Get the connection scheduler (shared by all devices)
+	 * @return ConnectionScheduler
+	 */
+	@NonNull
+	public ConnectionScheduler getScheduler() {
+		return mScheduler;
+	}
+
+	/**
+	 * Get the background connections pool (shared by all devices)
+	 * @return PendingConnectionPool
+	 */
+	@NonNull
+	public PendingConnectionPool getPendingPool() {
+		return mPendingPool;
+	}
 
 	/**
 	 * Add a device
@@ -19,7 +59,45 @@ public class DevicesManager {
 	 */
 	@NonNull
 	public DeviceOperation addDevice(@NonNull BleDevice device) {
-		return mDevicesOp.computeIfAbsent(device.getMacLong(), ml -> new DeviceOperation(device));
+		return mDevicesOp.computeIfAbsent(device.getMacLong(), ml -> createDeviceOp(device));
+	}
+
+	/**
+	 * Create a device OP
+	 * @param device The device
+	 * @return DeviceOperation
+	 */
+	@NonNull
+	private DeviceOperation createDeviceOp(@NonNull BleDevice device) {
+		DeviceOperation deviceOp = new DeviceOperation(device, this);
+		if(mIdleTimeout > 0) deviceOp.setIdleTimeout(mIdleTimeout);
+		return deviceOp;
+	}
+
+	/**
+	 * Set the connection pool (idle links closed after the timeout, least recently used idle link closed when the max is reached)
+	 * @param maxLinks Max live links (0 = unlimited)
+	 * @param idleTimeout Idle timeout in ms (0 = never)
+	 */
+	public void setConnectionPool(int maxLinks, long idleTimeout) {
+		mIdleTimeout = Math.max(0, idleTimeout);
+		for (DeviceOperation deviceOp : mDevicesOp.values()) deviceOp.setIdleTimeout(mIdleTimeout);
+		mScheduler.setPoolLimit(maxLinks);
+	}
+
+	/**
+	 * Find the least recently used idle link (connection pool eviction)
+	 * @return DeviceOperation or null if no link is idle
+	 */
+	@Nullable
+	private DeviceOperation findIdleLink() {
+		DeviceOperation lru = null;
+
+		for (DeviceOperation deviceOp : mDevicesOp.values()) {
+			if(deviceOp.isIdle() && (lru == null || deviceOp.getLastActivity() < lru.getLastActivity())) lru = deviceOp;
+		}
+
+		return lru;
 	}
 
 	/**
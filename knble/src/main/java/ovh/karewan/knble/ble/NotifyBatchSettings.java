@@ -0,0 +1,155 @@
+package ovh.karewan.knble.ble;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+public class NotifyBatchSettings {
+	/**
+	 * Overflow policies (when the ring is full)
+	 */
+	public static final int OVERFLOW_DROP_OLDEST = 0; // Drop the oldest notification of the ring
+	public static final int OVERFLOW_DROP_NEWEST = 1; // Drop the incoming notification
+	public static final int OVERFLOW_BLOCK = 2; // Block the bluetooth callback thread until the ring is drained (at most the block timeout, then drop the incoming notification)
+
+	/**
+	 * Default executor (thread pool shared by all the devices, the batches of a characteristic are still delivered one at a time)
+	 */
+	private static volatile Executor sDefaultExecutor;
+
+	/**
+	 * The settings
+	 */
+	private final int mMaxItems;
+	private final long mMaxDelay;
+	private final int mCapacity;
+	private final int mOverflowPolicy;
+	private final long mBlockTimeout;
+	private final Executor mExecutor;
+
+	/**
+	 * Class constructor
+	 */
+	private NotifyBatchSettings(int maxItems, long maxDelay, int capacity, int overflowPolicy, long blockTimeout, @NonNull Executor executor) {
+		this.mMaxItems = maxItems;
+		this.mMaxDelay = maxDelay;
+		this.mCapacity = capacity;
+		this.mOverflowPolicy = overflowPolicy;
+		this.mBlockTimeout = blockTimeout;
+		this.mExecutor = executor;
+	}
+
+	/**
+	 * Get the max notifications per batch (a batch is delivered as soon as it is reached)
+	 * @return mMaxItems
+	 */
+	public int getMaxItems() {
+		return mMaxItems;
+	}
+
+	/**
+	 * Get the max delay before delivering a batch (ms)
+	 * @return mMaxDelay
+	 */
+	public long getMaxDelay() {
+		return mMaxDelay;
+	}
+
+	/**
+	 * Get the ring capacity
+	 * @return mCapacity
+	 */
+	public int getCapacity() {
+		return mCapacity;
+	}
+
+	/**
+	 * Get the overflow policy
+	 * @return mOverflowPolicy
+	 */
+	public int getOverflowPolicy() {
+		return mOverflowPolicy;
+	}
+
+	/**
+	 * Get the max time the bluetooth callback thread is blocked by OVERFLOW_BLOCK (ms)
+	 * @return mBlockTimeout
+	 */
+	public long getBlockTimeout() {
+		return mBlockTimeout;
+	}
+
+	/**
+	 * Get the executor used to deliver the batches
+	 * @return mExecutor
+	 */
+	@NonNull
+	public Executor getExecutor() {
+		return mExecutor;
+	}
+
+	/**
+	 * Get the default executor
+	 * @return Executor
+	 */
+	@NonNull
+	private static Executor getDefaultExecutor() {
+		if(sDefaultExecutor == null) {
+			synchronized(NotifyBatchSettings.class) {
+				if(sDefaultExecutor == null) sDefaultExecutor = Executors.newCachedThreadPool(r -> new Thread(r, "KnBleNotify"));
+			}
+		}
+
+		return sDefaultExecutor;
+	}
+
+	/**
+	 * Builder
+	 */
+	public static final class Builder {
+		private int mMaxItems = 32;
+		private long mMaxDelay = 50;
+		private int mCapacity = 256;
+		private int mOverflowPolicy = OVERFLOW_DROP_OLDEST;
+		private long mBlockTimeout = 100;
+		private Executor mExecutor = null;
+
+		public Builder setMaxItems(int maxItems) {
+			this.mMaxItems = maxItems;
+			return this;
+		}
+
+		public Builder setMaxDelay(long maxDelay) {
+			this.mMaxDelay = maxDelay;
+			return this;
+		}
+
+		public Builder setCapacity(int capacity) {
+			this.mCapacity = capacity;
+			return this;
+		}
+
+		public Builder setOverflowPolicy(int overflowPolicy) {
+			this.mOverflowPolicy = overflowPolicy;
+			return this;
+		}
+
+		public Builder setBlockTimeout(long blockTimeout) {
+			this.mBlockTimeout = blockTimeout;
+			return this;
+		}
+
+		public Builder setExecutor(@Nullable Executor executor) {
+			this.mExecutor = executor;
+			return this;
+		}
+
+		public NotifyBatchSettings build() {
+			int capacity = Math.max(1, mCapacity);
+			int maxItems = Math.max(1, Math.min(mMaxItems, capacity));
+			return new NotifyBatchSettings(maxItems, Math.max(0, mMaxDelay), capacity, mOverflowPolicy, Math.max(0, mBlockTimeout), mExecutor == null ? getDefaultExecutor() : mExecutor);
+		}
+	}
+}
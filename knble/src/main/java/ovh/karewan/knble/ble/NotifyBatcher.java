@@ -0,0 +1,169 @@
+package ovh.karewan.knble.ble;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ovh.karewan.knble.interfaces.BleBatchNotifyCallback;
+
+class NotifyBatcher {
+	private final NotifyBatchSettings mSettings;
+	private final BleBatchNotifyCallback mCallback;
+	private final Handler mHandler;
+	private final byte[][] mRing;
+	private int mHead;
+	private int mCount;
+	private boolean mDeliveryPending;
+	private boolean mTimerPending;
+	private boolean mClosed;
+
+	private final Runnable mTimer = () -> {
+		synchronized(this) {
+			mTimerPending = false;
+		}
+		scheduleDelivery();
+	};
+
+	private final Runnable mDeliver = this::deliver;
+
+	NotifyBatcher(@NonNull NotifyBatchSettings settings, @NonNull BleBatchNotifyCallback callback, @NonNull Handler handler) {
+		mSettings = settings;
+		mCallback = callback;
+		mHandler = handler;
+		mRing = new byte[settings.getCapacity()][];
+	}
+
+	/**
+	 * Add a notification to the ring (called from the binder thread)
+	 * @param value The value
+	 * @return false if a notification has been dropped
+	 */
+	boolean offer(@NonNull byte[] value) {
+		boolean dropped = false;
+		boolean full;
+
+		synchronized(this) {
+			if(mClosed) return false;
+
+			// Ring full => apply the overflow policy
+			if(mCount == mRing.length) {
+				switch(mSettings.getOverflowPolicy()) {
+					case NotifyBatchSettings.OVERFLOW_DROP_NEWEST:
+						return false;
+
+					case NotifyBatchSettings.OVERFLOW_BLOCK:
+						// Bounded wait (a slow consumer must not stall the other gatt callbacks), then drop the incoming notification
+						long deadline = SystemClock.elapsedRealtime() + mSettings.getBlockTimeout();
+						while(mCount == mRing.length && !mClosed) {
+							long remaining = deadline - SystemClock.elapsedRealtime();
+							if(remaining <= 0) return false;
+
+							try {
+								wait(remaining);
+							} catch (InterruptedException e) {
+								Thread.currentThread().interrupt();
+								return false;
+							}
+						}
+						if(mClosed) return false;
+						break;
+
+					default:
+						mRing[mHead] = null;
+						mHead = (mHead + 1) % mRing.length;
+						mCount--;
+						dropped = true;
+						break;
+				}
+			}
+
+			mRing[(mHead + mCount) % mRing.length] = value;
+			mCount++;
+			full = mCount >= mSettings.getMaxItems();
+
+			// First notification of the batch => start the timer
+			if(!full && !mTimerPending && !mDeliveryPending) {
+				mTimerPending = true;
+				mHandler.postDelayed(mTimer, mSettings.getMaxDelay());
+			}
+		}
+
+		if(full) scheduleDelivery();
+		return !dropped;
+	}
+
+	/**
+	 * Schedule the delivery of the current batch on the executor (one delivery at a time per batcher)
+	 */
+	private void scheduleDelivery() {
+		synchronized(this) {
+			if(mDeliveryPending || mCount == 0) return;
+			mDeliveryPending = true;
+		}
+
+		mSettings.getExecutor().execute(mDeliver);
+	}
+
+	/**
+	 * Deliver the current batch (called from the executor)
+	 */
+	private void deliver() {
+		List<byte[]> batch;
+
+		synchronized(this) {
+			if(mTimerPending) {
+				mHandler.removeCallbacks(mTimer);
+				mTimerPending = false;
+			}
+
+			batch = new ArrayList<>(mCount);
+			while(mCount > 0) {
+				batch.add(mRing[mHead]);
+				mRing[mHead] = null;
+				mHead = (mHead + 1) % mRing.length;
+				mCount--;
+			}
+
+			// Wake up the blocked producers
+			notifyAll();
+		}
+
+		if(!batch.isEmpty()) mCallback.onNotifyBatch(batch);
+
+		// Notifications received during the delivery => next batch (now if full or closed, else after the max delay)
+		boolean full;
+		synchronized(this) {
+			mDeliveryPending = false;
+			if(mCount == 0) return;
+
+			full = mClosed || mCount >= mSettings.getMaxItems();
+			if(!full && !mTimerPending) {
+				mTimerPending = true;
+				mHandler.postDelayed(mTimer, mSettings.getMaxDelay());
+			}
+		}
+
+		if(full) scheduleDelivery();
+	}
+
+	@NonNull
+	NotifyBatchSettings getSettings() {
+		return mSettings;
+	}
+
+	/**
+	 * Close the batcher (the pending notifications are still delivered)
+	 */
+	void close() {
+		synchronized(this) {
+			mClosed = true;
+			notifyAll();
+		}
+
+		scheduleDelivery();
+	}
+}
@@ -0,0 +1,191 @@
+package ovh.karewan.knble.ble;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattService;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Objects;
+import java.util.UUID;
+
+import ovh.karewan.knble.interfaces.BleNotifyCallback;
+import ovh.karewan.knble.struct.NotifyStats;
+
+class NotifySubscription {
+	private static final long RATE_WINDOW = 1000;
+	private static final Subscriber[] EMPTY = new Subscriber[0];
+	private final BluetoothGattCharacteristic mCharacteristic;
+	private volatile Subscriber[] mSubscribers = EMPTY;
+	private volatile int mDirectCount;
+	private long mReceived;
+	private long mDropped;
+	private long mWindowStart = SystemClock.elapsedRealtime();
+	private int mWindowCount;
+	private float mRate;
+
+	/**
+	 * A subscriber (the batcher is null if the notifications are delivered one by one)
+	 */
+	static final class Subscriber {
+		final BleNotifyCallback callback;
+		final NotifyBatcher batcher;
+
+		Subscriber(@NonNull BleNotifyCallback callback, @Nullable NotifyBatcher batcher) {
+			this.callback = callback;
+			this.batcher = batcher;
+		}
+	}
+
+	/**
+	 * Subscription key (the same characteristic UUID can be exposed by several services, or several times in a service)
+	 */
+	static final class Key {
+		private final UUID mServiceUUID;
+		private final UUID mCharacteristicUUID;
+		private final int mInstanceId;
+
+		private Key(@Nullable UUID serviceUUID, @NonNull UUID characteristicUUID, int instanceId) {
+			mServiceUUID = serviceUUID;
+			mCharacteristicUUID = characteristicUUID;
+			mInstanceId = instanceId;
+		}
+
+		@NonNull
+		static Key of(@NonNull BluetoothGattCharacteristic characteristic) {
+			BluetoothGattService service = characteristic.getService();
+			return new Key(service != null ? service.getUuid() : null, characteristic.getUuid(), characteristic.getInstanceId());
+		}
+
+		@Override
+		public boolean equals(@Nullable Object o) {
+			return o instanceof Key k && mInstanceId == k.mInstanceId && mCharacteristicUUID.equals(k.mCharacteristicUUID) && Objects.equals(mServiceUUID, k.mServiceUUID);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(mServiceUUID, mCharacteristicUUID, mInstanceId);
+		}
+	}
+
+	NotifySubscription(@NonNull BluetoothGattCharacteristic characteristic) {
+		mCharacteristic = characteristic;
+	}
+
+	@NonNull
+	BluetoothGattCharacteristic getCharacteristic() {
+		return mCharacteristic;
+	}
+
+	/**
+	 * Get the subscribers (copy on write snapshot, must not be modified)
+	 * @return Subscriber[]
+	 */
+	@NonNull
+	Subscriber[] getSubscribers() {
+		return mSubscribers;
+	}
+
+	/**
+	 * Get the subscribers count without batcher
+	 * @return int
+	 */
+	int getDirectCount() {
+		return mDirectCount;
+	}
+
+	boolean isEmpty() {
+		return mSubscribers.length == 0;
+	}
+
+	/**
+	 * Add a subscriber
+	 * @param callback The callback
+	 * @param batcher The batcher (null to deliver the notifications one by one)
+	 * @return false if the callback is already subscribed
+	 */
+	synchronized boolean add(@NonNull BleNotifyCallback callback, @Nullable NotifyBatcher batcher) {
+		for(Subscriber subscriber : mSubscribers) if(subscriber.callback == callback) return false;
+
+		Subscriber[] subscribers = new Subscriber[mSubscribers.length + 1];
+		System.arraycopy(mSubscribers, 0, subscribers, 0, mSubscribers.length);
+		subscribers[mSubscribers.length] = new Subscriber(callback, batcher);
+		mSubscribers = subscribers;
+		if(batcher == null) mDirectCount++;
+		return true;
+	}
+
+	/**
+	 * Remove a subscriber (flush its pending batch)
+	 * @param callback The callback
+	 * @return false if the callback is not subscribed
+	 */
+	synchronized boolean remove(@NonNull BleNotifyCallback callback) {
+		for(int i = 0; i < mSubscribers.length; i++) {
+			Subscriber subscriber = mSubscribers[i];
+			if(subscriber.callback != callback) continue;
+
+			Subscriber[] subscribers = new Subscriber[mSubscribers.length - 1];
+			System.arraycopy(mSubscribers, 0, subscribers, 0, i);
+			System.arraycopy(mSubscribers, i + 1, subscribers, i, mSubscribers.length - i - 1);
+			mSubscribers = subscribers;
+
+			if(subscriber.batcher == null) mDirectCount--;
+			else subscriber.batcher.close();
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Get the callbacks of all the subscribers
+	 * @return BleNotifyCallback[]
+	 */
+	@NonNull
+	BleNotifyCallback[] getCallbacks() {
+		Subscriber[] subscribers = mSubscribers;
+		BleNotifyCallback[] callbacks = new BleNotifyCallback[subscribers.length];
+		for(int i = 0; i < subscribers.length; i++) callbacks[i] = subscribers[i].callback;
+		return callbacks;
+	}
+
+	/**
+	 * Close the subscription (flush the pending batches)
+	 */
+	void close() {
+		for(Subscriber subscriber : mSubscribers) if(subscriber.batcher != null) subscriber.batcher.close();
+	}
+
+	/**
+	 * Count a received notification (called from the binder thread)
+	 */
+	synchronized void onReceived() {
+		mReceived++;
+		mWindowCount++;
+
+		long now = SystemClock.elapsedRealtime();
+		long elapsed = now - mWindowStart;
+		if(elapsed >= RATE_WINDOW) {
+			mRate = mWindowCount * 1000f / elapsed;
+			mWindowStart = now;
+			mWindowCount = 0;
+		}
+	}
+
+	/**
+	 * Count a dropped notification
+	 */
+	synchronized void onDropped() {
+		mDropped++;
+	}
+
+	@NonNull
+	synchronized NotifyStats getStats() {
+		// No notification during the last window => the rate is outdated
+		long elapsed = SystemClock.elapsedRealtime() - mWindowStart;
+		float rate = elapsed >= 2 * RATE_WINDOW ? mWindowCount * 1000f / elapsed : mRate;
+		return new NotifyStats(mReceived, mDropped, rate);
+	}
+}
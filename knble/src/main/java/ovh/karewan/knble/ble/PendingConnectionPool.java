@@ -0,0 +1,102 @@
+package ovh.karewan.knble.ble;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+import ovh.karewan.knble.Utils;
+
+/**
+ * Pool of background connections (connectGatt with autoConnect, the controller scans its allow list at low duty cycle)
+ */
+public class PendingConnectionPool {
+	/**
+	 * Default max registered devices (the controller allow list is small on most phones)
+	 */
+	public static final int DEFAULT_MAX_PENDING = 8;
+
+	private final LinkedHashMap<DeviceOperation, Runnable> mWaiting = new LinkedHashMap<>();
+	private final Set<DeviceOperation> mRegistered = new HashSet<>();
+	private int mMaxPending = DEFAULT_MAX_PENDING;
+
+	/**
+	 * Set the max registered devices (the others wait for a free place)
+	 * @param maxPending int
+	 */
+	public void setMaxPending(int maxPending) {
+		synchronized(this) {
+			mMaxPending = Math.max(1, maxPending);
+		}
+
+		dispatch();
+	}
+
+	/**
+	 * Get the count of registered devices (waiting for the device in background)
+	 * @return int
+	 */
+	public synchronized int getRegisteredCount() {
+		return mRegistered.size();
+	}
+
+	/**
+	 * Get the count of devices waiting for a place in the pool
+	 * @return int
+	 */
+	public synchronized int getWaitingCount() {
+		return mWaiting.size();
+	}
+
+	/**
+	 * Request a place (the listener registers the background connection)
+	 * @param deviceOp DeviceOperation
+	 * @param listener Runnable
+	 */
+	void request(@NonNull DeviceOperation deviceOp, @NonNull Runnable listener) {
+		synchronized(this) {
+			mRegistered.remove(deviceOp);
+			mWaiting.remove(deviceOp);
+			mWaiting.put(deviceOp, listener);
+		}
+
+		dispatch();
+	}
+
+	/**
+	 * The device appeared or the wait is cancelled => free the place
+	 * @param deviceOp DeviceOperation
+	 */
+	void release(@NonNull DeviceOperation deviceOp) {
+		boolean changed;
+
+		synchronized(this) {
+			changed = mRegistered.remove(deviceOp) | mWaiting.remove(deviceOp) != null;
+		}
+
+		if(changed) dispatch();
+	}
+
+	/**
+	 * Register the waiting devices while there is room (listeners called outside the lock)
+	 */
+	private void dispatch() {
+		List<Runnable> started = null;
+
+		synchronized(this) {
+			while(!mWaiting.isEmpty() && mRegistered.size() < mMaxPending) {
+				DeviceOperation deviceOp = mWaiting.keySet().iterator().next();
+				Runnable listener = mWaiting.remove(deviceOp);
+				mRegistered.add(deviceOp);
+				if(started == null) started = new ArrayList<>();
+				started.add(listener);
+				Utils.log("pending connection registered mac=" + deviceOp.getDevice().getMac());
+			}
+		}
+
+		if(started != null) for(Runnable listener : started) listener.run();
+	}
+}
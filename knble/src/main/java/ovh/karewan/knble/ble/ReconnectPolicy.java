@@ -0,0 +1,200 @@
+package ovh.karewan.knble.ble;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import ovh.karewan.knble.interfaces.BleReconnectCallback;
+
+/**
+ * Automatic reconnection after a link loss (exponential backoff with jitter and a retry budget)
+ */
+public class ReconnectPolicy {
+	/**
+	 * Link loss statuses with a special handling
+	 */
+	public static final int STATUS_CONN_TIMEOUT = 8; // Supervision timeout (out of range)
+	public static final int STATUS_CONN_FAILED_ESTABLISHMENT = 62; // The peer did not answer the connection request
+	public static final int STATUS_GATT_ERROR = 133; // Generic stack error
+	public static final int STATUS_GATT_INTERNAL_ERROR = 129; // Internal stack error
+	public static final int STATUS_GATT_FAILURE = 257; // Stack failure
+
+	/**
+	 * Min delay after a 133 (the stack needs time to release the client interface)
+	 */
+	private static final long GATT_ERROR_MIN_DELAY = 1000;
+
+	/**
+	 * Backoff steps skipped after an 8 (the device is out of range, a short retry would fail)
+	 */
+	private static final int CONN_TIMEOUT_SKIPPED_STEPS = 2;
+
+	/**
+	 * Budget cost of an attempt (a retry after a 62 costs half, the peer was only busy or advertising slowly)
+	 */
+	private static final int ATTEMPT_COST = 2;
+
+	private final long mInitialDelay;
+	private final long mMaxDelay;
+	private final float mMultiplier;
+	private final float mJitter;
+	private final int mMaxAttempts;
+	private final boolean mResumeNotifications;
+	private final BleReconnectCallback mCallback;
+
+	private ReconnectPolicy(@NonNull Builder builder) {
+		mInitialDelay = builder.mInitialDelay;
+		mMaxDelay = builder.mMaxDelay;
+		mMultiplier = builder.mMultiplier;
+		mJitter = builder.mJitter;
+		mMaxAttempts = builder.mMaxAttempts;
+		mResumeNotifications = builder.mResumeNotifications;
+		mCallback = builder.mCallback;
+	}
+
+	public int getMaxAttempts() {
+		return mMaxAttempts;
+	}
+
+	public boolean isResumeNotifications() {
+		return mResumeNotifications;
+	}
+
+	@Nullable
+	public BleReconnectCallback getCallback() {
+		return mCallback;
+	}
+
+	/**
+	 * Check if the retry budget is exhausted
+	 * @param cost Budget already used (sum of getCost)
+	 * @return boolean
+	 */
+	boolean isExhausted(int cost) {
+		return mMaxAttempts > 0 && cost >= mMaxAttempts * ATTEMPT_COST;
+	}
+
+	/**
+	 * Get the budget cost of an attempt
+	 * @param status The status of the link loss (or of the failed attempt)
+	 * @return int
+	 */
+	static int getCost(int status) {
+		return status == STATUS_CONN_FAILED_ESTABLISHMENT ? ATTEMPT_COST / 2 : ATTEMPT_COST;
+	}
+
+	/**
+	 * Get the delay before an attempt
+	 * @param attempt Attempts already done
+	 * @param status The status of the link loss (or of the failed attempt)
+	 * @return long (ms)
+	 */
+	long getDelay(int attempt, int status) {
+		// Out of range => skip the short early attempts
+		int step = status == STATUS_CONN_TIMEOUT ? attempt + CONN_TIMEOUT_SKIPPED_STEPS : attempt;
+		double delay = Math.min(mInitialDelay * Math.pow(mMultiplier, step), mMaxDelay);
+
+		// The peer did not answer => retry quickly
+		if(status == STATUS_CONN_FAILED_ESTABLISHMENT) delay = Math.min(delay, mInitialDelay);
+
+		// Jitter (spread the devices dropped at the same time to avoid reconnect storms)
+		delay -= delay * mJitter * ThreadLocalRandom.current().nextDouble();
+
+		// An immediate retry after a 133 always fails
+		if(status == STATUS_GATT_ERROR) delay = Math.max(delay, GATT_ERROR_MIN_DELAY);
+
+		return (long) delay;
+	}
+
+	/**
+	 * Check if a status is a GATT / stack error (the cached database may be the culprit)
+	 * @param status The status
+	 * @return boolean
+	 */
+	static boolean isStackError(int status) {
+		return status == STATUS_GATT_ERROR || status == STATUS_GATT_INTERNAL_ERROR || status == STATUS_GATT_FAILURE;
+	}
+
+	/**
+	 * Builder
+	 */
+	public static final class Builder {
+		private long mInitialDelay = 1000;
+		private long mMaxDelay = 30000;
+		private float mMultiplier = 2f;
+		private float mJitter = 0.5f;
+		private int mMaxAttempts = 5;
+		private boolean mResumeNotifications = true;
+		private BleReconnectCallback mCallback = null;
+
+		/**
+		 * Delay before the first attempt (ms)
+		 * @param initialDelay long
+		 * @return Builder
+		 */
+		public Builder setInitialDelay(long initialDelay) {
+			this.mInitialDelay = Math.max(0, initialDelay);
+			return this;
+		}
+
+		/**
+		 * Max delay between two attempts (ms)
+		 * @param maxDelay long
+		 * @return Builder
+		 */
+		public Builder setMaxDelay(long maxDelay) {
+			this.mMaxDelay = Math.max(0, maxDelay);
+			return this;
+		}
+
+		/**
+		 * Delay multiplier after each failed attempt
+		 * @param multiplier float (>= 1)
+		 * @return Builder
+		 */
+		public Builder setMultiplier(float multiplier) {
+			this.mMultiplier = Math.max(1f, multiplier);
+			return this;
+		}
+
+		/**
+		 * Random part of the delay (0 = none, 1 = full jitter)
+		 * @param jitter float (0..1)
+		 * @return Builder
+		 */
+		public Builder setJitter(float jitter) {
+			this.mJitter = Math.min(1f, Math.max(0f, jitter));
+			return this;
+		}
+
+		/**
+		 * Retry budget per link loss (a retry after a status 62 counts as half an attempt)
+		 * @param maxAttempts int (0 = unlimited)
+		 * @return Builder
+		 */
+		public Builder setMaxAttempts(int maxAttempts) {
+			this.mMaxAttempts = Math.max(0, maxAttempts);
+			return this;
+		}
+
+		/**
+		 * Enable again the notifications which were enabled before the link loss
+		 * @param resumeNotifications boolean
+		 * @return Builder
+		 */
+		public Builder setResumeNotifications(boolean resumeNotifications) {
+			this.mResumeNotifications = resumeNotifications;
+			return this;
+		}
+
+		public Builder setCallback(@Nullable BleReconnectCallback callback) {
+			this.mCallback = callback;
+			return this;
+		}
+
+		public ReconnectPolicy build() {
+			return new ReconnectPolicy(this);
+		}
+	}
+}
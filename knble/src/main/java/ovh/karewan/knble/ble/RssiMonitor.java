@@ -0,0 +1,149 @@
+package ovh.karewan.knble.ble;
+
+import androidx.annotation.NonNull;
+
+import ovh.karewan.knble.interfaces.BleRssiMonitorCallback;
+
+/**
+ * Periodic RSSI monitor settings (reads slotted into the idle gaps of the tasks queue, smoothed history, link quality events)
+ */
+public class RssiMonitor {
+	/**
+	 * Link qualities
+	 */
+	public static final int QUALITY_UNKNOWN = 0;
+	public static final int QUALITY_POOR = 1;
+	public static final int QUALITY_FAIR = 2;
+	public static final int QUALITY_GOOD = 3;
+
+	private final long mInterval;
+	private final long mMaxDelay;
+	private final float mSmoothing;
+	private final int mHistorySize;
+	private final int mGoodRssi;
+	private final int mPoorRssi;
+	private final int mHysteresis;
+	private final BleRssiMonitorCallback mCallback;
+
+	private RssiMonitor(@NonNull Builder builder) {
+		mInterval = builder.mInterval;
+		mMaxDelay = builder.mMaxDelay;
+		mSmoothing = builder.mSmoothing;
+		mHistorySize = builder.mHistorySize;
+		mGoodRssi = builder.mGoodRssi;
+		mPoorRssi = builder.mPoorRssi;
+		mHysteresis = builder.mHysteresis;
+		mCallback = builder.mCallback;
+	}
+
+	public long getInterval() {
+		return mInterval;
+	}
+
+	public long getMaxDelay() {
+		return mMaxDelay;
+	}
+
+	public float getSmoothing() {
+		return mSmoothing;
+	}
+
+	public int getHistorySize() {
+		return mHistorySize;
+	}
+
+	@NonNull
+	public BleRssiMonitorCallback getCallback() {
+		return mCallback;
+	}
+
+	/**
+	 * Get the link quality of a smoothed RSSI (the current quality is kept inside the hysteresis band)
+	 * @param smoothed The smoothed RSSI
+	 * @param current The current quality
+	 * @return int QUALITY_xxx
+	 */
+	int getQuality(float smoothed, int current) {
+		int quality = smoothed >= mGoodRssi ? QUALITY_GOOD : (smoothed <= mPoorRssi ? QUALITY_POOR : QUALITY_FAIR);
+		if(current == QUALITY_UNKNOWN || quality == current) return quality;
+
+		// Leave the current quality only once past the threshold by the hysteresis
+		return switch(current) {
+			case QUALITY_GOOD -> smoothed < mGoodRssi - mHysteresis ? quality : current;
+			case QUALITY_POOR -> smoothed > mPoorRssi + mHysteresis ? quality : current;
+			default -> (quality == QUALITY_GOOD ? smoothed >= mGoodRssi + mHysteresis : smoothed <= mPoorRssi - mHysteresis) ? quality : current;
+		};
+	}
+
+	/**
+	 * Builder
+	 */
+	public static final class Builder {
+		private long mInterval = 2000;
+		private long mMaxDelay = 4000;
+		private float mSmoothing = 0.3f;
+		private int mHistorySize = 32;
+		private int mGoodRssi = -65;
+		private int mPoorRssi = -85;
+		private int mHysteresis = 3;
+		private final BleRssiMonitorCallback mCallback;
+
+		/**
+		 * Builder
+		 * @param callback The callback (called on the device thread)
+		 */
+		public Builder(@NonNull BleRssiMonitorCallback callback) {
+			this.mCallback = callback;
+		}
+
+		/**
+		 * Read interval, a read waits for an idle queue up to the max delay then is queued anyway
+		 * @param interval long (ms)
+		 * @param maxDelay long (ms)
+		 * @return Builder
+		 */
+		public Builder setInterval(long interval, long maxDelay) {
+			this.mInterval = Math.max(100, interval);
+			this.mMaxDelay = Math.max(0, maxDelay);
+			return this;
+		}
+
+		/**
+		 * Exponential moving average factor of a new read
+		 * @param smoothing float (0..1, 1 = no smoothing)
+		 * @return Builder
+		 */
+		public Builder setSmoothing(float smoothing) {
+			this.mSmoothing = Math.min(1f, Math.max(0.01f, smoothing));
+			return this;
+		}
+
+		/**
+		 * Smoothed values kept
+		 * @param historySize int
+		 * @return Builder
+		 */
+		public Builder setHistorySize(int historySize) {
+			this.mHistorySize = Math.max(1, historySize);
+			return this;
+		}
+
+		/**
+		 * Link quality thresholds
+		 * @param goodRssi Good at or above (dBm)
+		 * @param poorRssi Poor at or below (dBm)
+		 * @param hysteresis Hysteresis (dB)
+		 * @return Builder
+		 */
+		public Builder setQualityThresholds(int goodRssi, int poorRssi, int hysteresis) {
+			this.mGoodRssi = goodRssi;
+			this.mPoorRssi = Math.min(poorRssi, goodRssi);
+			this.mHysteresis = Math.max(0, hysteresis);
+			return this;
+		}
+
+		public RssiMonitor build() {
+			return new RssiMonitor(this);
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package ovh.karewan.knble.ble;
+
+import androidx.annotation.NonNull;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import ovh.karewan.knble.scan.Scanner;
+
+/**
+ * Scan and connections coexistence (the scan is lowered or paused while connections are set up or during bulk transfers)
+ */
+public class ScanCoexistence {
+	private final Scanner mScanner;
+	private final Set<DeviceOperation> mConnecting = new HashSet<>();
+	private final Set<DeviceOperation> mTransferring = new HashSet<>();
+	private int mThrottle = Scanner.THROTTLE_NONE;
+	private boolean mBusy;
+
+	public ScanCoexistence(@NonNull Scanner scanner) {
+		mScanner = scanner;
+	}
+
+	/**
+	 * Set the throttle applied to the scan while busy
+	 * @param throttle Scanner.THROTTLE_xxx (THROTTLE_NONE = disabled)
+	 */
+	public void setThrottle(int throttle) {
+		synchronized(this) {
+			mThrottle = throttle;
+		}
+
+		update();
+	}
+
+	/**
+	 * A device starts or ends a connection setup
+	 * @param deviceOp DeviceOperation
+	 * @param connecting boolean
+	 */
+	void setConnecting(@NonNull DeviceOperation deviceOp, boolean connecting) {
+		boolean changed;
+
+		synchronized(this) {
+			changed = connecting ? mConnecting.add(deviceOp) : mConnecting.remove(deviceOp);
+		}
+
+		if(changed) update();
+	}
+
+	/**
+	 * A device starts or ends a bulk transfer
+	 * @param deviceOp DeviceOperation
+	 * @param transferring boolean
+	 */
+	void setTransferring(@NonNull DeviceOperation deviceOp, boolean transferring) {
+		boolean changed;
+
+		synchronized(this) {
+			changed = transferring ? mTransferring.add(deviceOp) : mTransferring.remove(deviceOp);
+		}
+
+		if(changed) update();
+	}
+
+	/**
+	 * Throttle or restore the scan
+	 */
+	private synchronized void update() {
+		boolean busy = !mConnecting.isEmpty() || !mTransferring.isEmpty();
+		if(busy == mBusy && !busy) return;
+		mBusy = busy;
+
+		// Under the lock (the last state always wins)
+		mScanner.setThrottle(busy ? mThrottle : Scanner.THROTTLE_NONE);
+	}
+}
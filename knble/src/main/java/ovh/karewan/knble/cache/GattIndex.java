@@ -0,0 +1,168 @@
+package ovh.karewan.knble.cache;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.bluetooth.BluetoothGattService;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Immutable index of the GATT attributes of a connection (built once per service discovery)
+ */
+public final class GattIndex {
+	public static final GattIndex EMPTY = new GattIndex(Collections.emptyMap());
+
+	private final Map<UUID, ServiceEntry> mServices;
+
+	private GattIndex(@NonNull Map<UUID, ServiceEntry> services) {
+		mServices = services;
+	}
+
+	/**
+	 * Build the index
+	 * @param services The discovered services
+	 * @return GattIndex
+	 */
+	@NonNull
+	public static GattIndex build(@Nullable List<BluetoothGattService> services) {
+		if(services == null || services.isEmpty()) return EMPTY;
+
+		HashMap<UUID, ServiceEntry> map = new HashMap<>();
+		for(BluetoothGattService service : services) {
+			// Same lookup semantic as BluetoothGatt.getService (first instance wins)
+			if(map.containsKey(service.getUuid())) continue;
+
+			HashMap<UUID, Entry[]> charas = new HashMap<>();
+			for(BluetoothGattCharacteristic characteristic : service.getCharacteristics()) {
+				HashMap<UUID, BluetoothGattDescriptor> descriptors = new HashMap<>();
+				for(BluetoothGattDescriptor descriptor : characteristic.getDescriptors()) descriptors.putIfAbsent(descriptor.getUuid(), descriptor);
+
+				// Several instances of the same characteristic UUID (ordered as discovered)
+				Entry entry = new Entry(service, characteristic, descriptors);
+				Entry[] instances = charas.get(characteristic.getUuid());
+				if(instances == null) {
+					instances = new Entry[]{entry};
+				} else {
+					Entry[] grown = new Entry[instances.length + 1];
+					System.arraycopy(instances, 0, grown, 0, instances.length);
+					grown[instances.length] = entry;
+					instances = grown;
+				}
+				charas.put(characteristic.getUuid(), instances);
+			}
+
+			map.put(service.getUuid(), new ServiceEntry(service, charas));
+		}
+
+		return new GattIndex(map);
+	}
+
+	public boolean isEmpty() {
+		return mServices.isEmpty();
+	}
+
+	/**
+	 * Get a service
+	 * @param serviceUUID The service UUID
+	 * @return BluetoothGattService or null
+	 */
+	@Nullable
+	public BluetoothGattService getService(@Nullable UUID serviceUUID) {
+		if(serviceUUID == null) return null;
+		ServiceEntry entry = mServices.get(serviceUUID);
+		return entry == null ? null : entry.mService;
+	}
+
+	/**
+	 * Get an entry (first instance of the characteristic)
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @return Entry or null
+	 */
+	@Nullable
+	public Entry get(@Nullable UUID serviceUUID, @Nullable UUID characteristicUUID) {
+		Entry[] instances = getInstances(serviceUUID, characteristicUUID);
+		return instances == null ? null : instances[0];
+	}
+
+	/**
+	 * Get an entry
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @param instanceId The characteristic instance ID
+	 * @return Entry or null
+	 */
+	@Nullable
+	public Entry get(@Nullable UUID serviceUUID, @Nullable UUID characteristicUUID, int instanceId) {
+		Entry[] instances = getInstances(serviceUUID, characteristicUUID);
+		if(instances == null) return null;
+		for(Entry entry : instances) if(entry.getCharacteristic().getInstanceId() == instanceId) return entry;
+		return null;
+	}
+
+	/**
+	 * Get a characteristic (first instance)
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @return BluetoothGattCharacteristic or null
+	 */
+	@Nullable
+	public BluetoothGattCharacteristic getCharacteristic(@Nullable UUID serviceUUID, @Nullable UUID characteristicUUID) {
+		Entry entry = get(serviceUUID, characteristicUUID);
+		return entry == null ? null : entry.getCharacteristic();
+	}
+
+	@Nullable
+	private Entry[] getInstances(@Nullable UUID serviceUUID, @Nullable UUID characteristicUUID) {
+		if(serviceUUID == null || characteristicUUID == null) return null;
+		ServiceEntry service = mServices.get(serviceUUID);
+		return service == null ? null : service.mCharacteristics.get(characteristicUUID);
+	}
+
+	private static final class ServiceEntry {
+		final BluetoothGattService mService;
+		final Map<UUID, Entry[]> mCharacteristics;
+
+		ServiceEntry(@NonNull BluetoothGattService service, @NonNull Map<UUID, Entry[]> characteristics) {
+			this.mService = service;
+			this.mCharacteristics = characteristics;
+		}
+	}
+
+	/**
+	 * A characteristic with its service and descriptors
+	 */
+	public static final class Entry {
+		private final BluetoothGattService mService;
+		private final BluetoothGattCharacteristic mCharacteristic;
+		private final Map<UUID, BluetoothGattDescriptor> mDescriptors;
+
+		Entry(@NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, @NonNull Map<UUID, BluetoothGattDescriptor> descriptors) {
+			this.mService = service;
+			this.mCharacteristic = characteristic;
+			this.mDescriptors = descriptors;
+		}
+
+		@NonNull
+		public BluetoothGattService getService() {
+			return mService;
+		}
+
+		@NonNull
+		public BluetoothGattCharacteristic getCharacteristic() {
+			return mCharacteristic;
+		}
+
+		@Nullable
+		public BluetoothGattDescriptor getDescriptor(@Nullable UUID descriptorUUID) {
+			return descriptorUUID == null ? null : mDescriptors.get(descriptorUUID);
+		}
+	}
+}
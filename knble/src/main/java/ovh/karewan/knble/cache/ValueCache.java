@@ -0,0 +1,141 @@
+package ovh.karewan.knble.cache;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-through cache of characteristic values (only for the characteristics with a policy)
+ */
+public class ValueCache {
+	public static final long UNTIL_DISCONNECT = Long.MAX_VALUE; // Kept until disconnect, service changed or write
+
+	private final ConcurrentHashMap<UUID, ConcurrentHashMap<UUID, Entry>> cache = new ConcurrentHashMap<>();
+
+	private static final class Entry {
+		final long ttl;
+		byte[] value;
+		long expiresAt;
+		long generation;
+
+		Entry(long ttl) {
+			this.ttl = ttl;
+		}
+	}
+
+	/**
+	 * Set the cache policy of a characteristic
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @param ttl Time to live in ms (UNTIL_DISCONNECT, 0 to disable)
+	 */
+	public void setPolicy(@NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, long ttl) {
+		if(ttl > 0) {
+			cache.computeIfAbsent(serviceUUID, k -> new ConcurrentHashMap<>()).put(characteristicUUID, new Entry(ttl));
+		} else {
+			Map<UUID, Entry> characteristics = cache.get(serviceUUID);
+			if(characteristics != null) characteristics.remove(characteristicUUID);
+		}
+	}
+
+	public boolean isEmpty() {
+		return cache.isEmpty();
+	}
+
+	/**
+	 * Get a cached value
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @return byte[] (copy) or null if not cached or expired
+	 */
+	@Nullable
+	public byte[] get(@Nullable UUID serviceUUID, @Nullable UUID characteristicUUID) {
+		Entry entry = getEntry(serviceUUID, characteristicUUID);
+		if(entry == null) return null;
+
+		synchronized(entry) {
+			if(entry.value == null) return null;
+
+			if(entry.ttl != UNTIL_DISCONNECT && SystemClock.elapsedRealtime() >= entry.expiresAt) {
+				entry.value = null;
+				return null;
+			}
+
+			return entry.value.clone();
+		}
+	}
+
+	/**
+	 * Get the invalidation generation of a characteristic (to be captured when a read is sent)
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @return long (-1 if the characteristic has no policy)
+	 */
+	public long getGeneration(@Nullable UUID serviceUUID, @Nullable UUID characteristicUUID) {
+		Entry entry = getEntry(serviceUUID, characteristicUUID);
+		if(entry == null) return -1;
+
+		synchronized(entry) {
+			return entry.generation;
+		}
+	}
+
+	/**
+	 * Store a read value (ignored if the characteristic has no policy or has been invalidated since the read was sent)
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @param value The value
+	 * @param generation The generation captured when the read was sent
+	 */
+	public void put(@Nullable UUID serviceUUID, @Nullable UUID characteristicUUID, @NonNull byte[] value, long generation) {
+		Entry entry = getEntry(serviceUUID, characteristicUUID);
+		if(entry == null) return;
+
+		synchronized(entry) {
+			if(entry.generation != generation) return;
+			entry.value = value.clone();
+			entry.expiresAt = entry.ttl == UNTIL_DISCONNECT ? Long.MAX_VALUE : SystemClock.elapsedRealtime() + entry.ttl;
+		}
+	}
+
+	/**
+	 * Invalidate a cached value
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 */
+	public void invalidate(@Nullable UUID serviceUUID, @Nullable UUID characteristicUUID) {
+		Entry entry = getEntry(serviceUUID, characteristicUUID);
+		if(entry == null) return;
+
+		synchronized(entry) {
+			entry.value = null;
+			entry.generation++;
+		}
+	}
+
+	/**
+	 * Invalidate all the cached values (the policies are kept)
+	 */
+	public void clear() {
+		for(Map<UUID, Entry> characteristics : cache.values()) {
+			for(Entry entry : characteristics.values()) {
+				synchronized(entry) {
+					entry.value = null;
+					entry.generation++;
+				}
+			}
+		}
+	}
+
+	@Nullable
+	private Entry getEntry(@Nullable UUID serviceUUID, @Nullable UUID characteristicUUID) {
+		if(serviceUUID == null || characteristicUUID == null) return null;
+		Map<UUID, Entry> characteristics = cache.get(serviceUUID);
+		return characteristics == null ? null : characteristics.get(characteristicUUID);
+	}
+}
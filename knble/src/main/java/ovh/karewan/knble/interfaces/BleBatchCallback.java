@@ -0,0 +1,12 @@
+package ovh.karewan.knble.interfaces;
+
+import androidx.annotation.NonNull;
+
+public interface BleBatchCallback {
+	/**
+	 * On batch complete
+	 * @param success All the steps succeeded
+	 * @param results Result of each step (false for the steps not executed after a failure)
+	 */
+	void onBatchComplete(boolean success, @NonNull boolean[] results);
+}
@@ -0,0 +1,13 @@
+package ovh.karewan.knble.interfaces;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+
+public interface BleBatchNotifyCallback extends BleNotifyCallback {
+	/**
+	 * On notify batch (onNotify is not called in batched mode)
+	 * @param batch Notifications values, oldest first
+	 */
+	void onNotifyBatch(@NonNull List<byte[]> batch);
+}
@@ -0,0 +1,11 @@
+package ovh.karewan.knble.interfaces;
+
+public interface BleConnectionStageListener {
+	/**
+	 * On connection stage complete
+	 * @param stage ConnectionProfile.STAGE_xxx
+	 * @param success The stage result
+	 * @param duration The stage duration (ms, since connect for STAGE_READY)
+	 */
+	void onStage(int stage, boolean success, long duration);
+}
@@ -14,6 +14,17 @@ public interface BleGattCallback {
 	int CONNECTING = 1;
 	int CONNECTED = 2;
 
+	/**
+	 * DISCONNECT REASONS
+	 */
+	int REASON_NONE = 0; // Disconnected by the app
+	int REASON_BLUETOOTH_DISABLED = 1;
+	int REASON_CONNECT_FAILED = 2;
+	int REASON_CONNECT_TIMEOUT = 3;
+	int REASON_DISCOVERY_FAILED = 4;
+	int REASON_DISCOVERY_TIMEOUT = 5;
+	int REASON_LINK_LOSS = 6;
+
 	/**
 	 * onConnecting
 	 */
@@ -30,4 +41,13 @@ public interface BleGattCallback {
 	 * @param connectFailed connection failed
 	 */
 	void onDisconnected(boolean connectFailed);
+
+	/**
+	 * onDisconnected with the reason
+	 * @param connectFailed connection failed
+	 * @param reason REASON_xxx
+	 */
+	default void onDisconnected(boolean connectFailed, int reason) {
+		onDisconnected(connectFailed);
+	}
 }
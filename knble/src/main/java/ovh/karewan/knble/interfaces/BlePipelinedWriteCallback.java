@@ -0,0 +1,10 @@
+package ovh.karewan.knble.interfaces;
+
+public interface BlePipelinedWriteCallback extends BleSplittedWriteCallback {
+	/**
+	 * On write stats (called after each acknowledged packet)
+	 * @param bytesPerSecond Average throughput since the start of the transfer
+	 * @param packetsInFlight Packets accepted by the stack but not yet acknowledged
+	 */
+	void onWriteStats(long bytesPerSecond, int packetsInFlight);
+}
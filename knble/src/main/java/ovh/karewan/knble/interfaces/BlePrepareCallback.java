@@ -0,0 +1,10 @@
+package ovh.karewan.knble.interfaces;
+
+import androidx.annotation.NonNull;
+
+import ovh.karewan.knble.ble.CharacteristicHandle;
+
+public interface BlePrepareCallback {
+	void onSuccess(@NonNull CharacteristicHandle handle);
+	void onFailed();
+}
@@ -2,4 +2,9 @@ package ovh.karewan.knble.interfaces;
 
 public interface BleReadRssiCallback {
 	void onRssi(int rssi);
+
+	/**
+	 * RSSI read failed (not connected or stack error)
+	 */
+	default void onRssiFailed() {}
 }
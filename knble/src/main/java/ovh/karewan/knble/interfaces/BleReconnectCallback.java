@@ -0,0 +1,24 @@
+package ovh.karewan.knble.interfaces;
+
+public interface BleReconnectCallback {
+	/**
+	 * A reconnection attempt is scheduled
+	 * @param attempt The attempt number (from 1)
+	 * @param delay The delay before the attempt (ms)
+	 * @param status The status of the link loss (or of the failed attempt)
+	 */
+	void onReconnecting(int attempt, long delay, int status);
+
+	/**
+	 * Reconnected (onConnectSuccess is also called)
+	 * @param attempts The attempts count
+	 * @param duration The time since the link loss (ms)
+	 */
+	void onReconnected(int attempts, long duration);
+
+	/**
+	 * The retry budget is exhausted (onDisconnected is also called)
+	 * @param attempts The attempts count
+	 */
+	void onReconnectFailed(int attempts);
+}
@@ -0,0 +1,17 @@
+package ovh.karewan.knble.interfaces;
+
+public interface BleRssiMonitorCallback {
+	/**
+	 * On RSSI read
+	 * @param rssi The raw RSSI (dBm)
+	 * @param smoothed The smoothed RSSI (dBm)
+	 */
+	void onRssi(int rssi, float smoothed);
+
+	/**
+	 * On link quality changed
+	 * @param quality RssiMonitor.QUALITY_xxx
+	 * @param smoothed The smoothed RSSI (dBm)
+	 */
+	void onLinkQualityChanged(int quality, float smoothed);
+}
@@ -9,7 +9,7 @@ public interface BleSplittedWriteCallback {
 	/**
 	 * On write progress
 	 * @param current Current packet
-	 * @param total Total packets
+	 * @param total Total packets (-1 if unknown)
 	 */
 	void onWriteProgress(int current, int total);
 
@@ -10,4 +10,11 @@ public interface BleWriteCallback {
 	 * On write success
 	 */
 	void onWriteSuccess();
+
+	/**
+	 * On write merged (superseded by a newer write of the same characteristic before being sent, write coalescing enabled)
+	 */
+	default void onWriteMerged() {
+		onWriteSuccess();
+	}
 }
@@ -8,6 +8,7 @@ import android.bluetooth.le.ScanResult;
 import android.os.Build;
 import android.os.Handler;
 import android.os.HandlerThread;
+import android.os.SystemClock;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -25,7 +26,29 @@ import ovh.karewan.knble.Utils;
 
 @SuppressWarnings("MissingPermission")
 public class Scanner {
+	/**
+	 * Coexistence throttles (scan lowered or paused while connections are set up or during bulk transfers)
+	 */
+	public static final int THROTTLE_NONE = 0;
+	public static final int THROTTLE_LOW_DUTY = 1;
+	public static final int THROTTLE_PAUSE = 2;
+
+	/**
+	 * Delay before restoring the scan (avoid restarts between two close connection steps)
+	 */
+	private static final long THROTTLE_RESTORE_DELAY = 500;
+
+	/**
+	 * OS scan start budget (Android blocks the app after 5 starts in 30 s)
+	 */
+	private static final int SCAN_START_BUDGET = 5;
+	private static final long SCAN_START_WINDOW = 30000;
+
 	private final Handler mHandler;
+	private final long[] mStartTimes = new long[SCAN_START_BUDGET];
+	private int mStartIndex = 0;
+	private int mThrottle = THROTTLE_NONE;
+	private volatile int mRequestedThrottle = THROTTLE_NONE;
 	private final ConcurrentHashMap<String, BleDevice> mScannedDevices = new ConcurrentHashMap<>();
 
 	private boolean mIsScanning = false;
@@ -242,6 +265,17 @@ public class Scanner {
 		// Clear previous scanned devices
 		clearScannedDevices();
 
+		startLeScan();
+	}
+
+	/**
+	 * Start the LE scan (with the current throttle)
+	 */
+	private void startLeScan() {
+		// Paused by the coexistence (started again when the connections are done)
+		mThrottle = mRequestedThrottle;
+		if(mThrottle == THROTTLE_PAUSE) return;
+
 		// Init LE Scanner
 		if(mBluetoothLeScanner == null) {
 			if(KnBle.gi().getBluetoothAdapter() != null) {
@@ -319,8 +353,12 @@ public class Scanner {
 		// Scan settings
 		android.bluetooth.le.ScanSettings.Builder scanSettingBuilder = new android.bluetooth.le.ScanSettings.Builder();
 		if(mScanSettings != null) {
+			// Lowered duty cycle while the connections need the radio
+			int scanMode = mScanSettings.getScanMode();
+			if(mThrottle == THROTTLE_LOW_DUTY && scanMode > ScanSettings.SCAN_MODE_LOW_POWER) scanMode = ScanSettings.SCAN_MODE_LOW_POWER;
+
 			// Set the settings
-			scanSettingBuilder.setScanMode(mScanSettings.getScanMode())
+			scanSettingBuilder.setScanMode(scanMode)
 					.setMatchMode(mScanSettings.getMatchMode())
 					.setNumOfMatches(mScanSettings.getNbMatch())
 					.setCallbackType(mScanSettings.getCallbackType())
@@ -334,9 +372,75 @@ public class Scanner {
 		}
 
 		// Start scanning
+		mStartTimes[mStartIndex] = SystemClock.elapsedRealtime();
+		mStartIndex = (mStartIndex + 1) % SCAN_START_BUDGET;
 		mBluetoothLeScanner.startScan(scanFilters, scanSettingBuilder.build(), mScanCallback);
 	}
 
+	/**
+	 * Stop the LE scan (no callback)
+	 */
+	private void stopLeScan() {
+		if(mBluetoothLeScanner != null && mScanCallback != null && KnBle.gi().isBluetoothEnabled()) mBluetoothLeScanner.stopScan(mScanCallback);
+	}
+
+	/**
+	 * Set the coexistence throttle (a stronger throttle is applied now, a weaker one after a short delay)
+	 * @param throttle THROTTLE_xxx
+	 */
+	public void setThrottle(int throttle) {
+		// Kept even if the scan handler is cleared (used by the next start)
+		mRequestedThrottle = throttle;
+
+		mHandler.post(() -> {
+			mHandler.removeCallbacks(mApplyThrottle);
+
+			if(throttle >= mThrottle) applyThrottle();
+			else mHandler.postDelayed(mApplyThrottle, THROTTLE_RESTORE_DELAY);
+		});
+	}
+
+	private final Runnable mApplyThrottle = this::applyThrottle;
+
+	/**
+	 * Apply the requested throttle (restart the scan within the OS start budget)
+	 */
+	private void applyThrottle() {
+		int throttle = mRequestedThrottle;
+		if(throttle == mThrottle) return;
+
+		// Not scanning => applied at the next start
+		if(!mIsScanning) {
+			mThrottle = throttle;
+			return;
+		}
+
+		// A restart is needed => wait for the start budget (the current scan keeps running meanwhile)
+		if(throttle != THROTTLE_PAUSE) {
+			long wait = getStartBudgetDelay();
+			if(wait > 0) {
+				Utils.log("scan throttle deferred wait=" + wait);
+				mHandler.postDelayed(mApplyThrottle, wait);
+				return;
+			}
+		}
+
+		Utils.log("scan throttle=" + throttle);
+		stopLeScan();
+		startLeScan();
+	}
+
+	/**
+	 * Get the delay before a scan start is allowed by the OS budget
+	 * @return long (ms)
+	 */
+	private long getStartBudgetDelay() {
+		// Oldest start of the window
+		long oldest = mStartTimes[mStartIndex];
+		if(oldest == 0) return 0;
+		return Math.max(0, oldest + SCAN_START_WINDOW - SystemClock.elapsedRealtime());
+	}
+
 	/**
 	 * When a new device is scanned
 	 * @param device The device
@@ -428,7 +532,7 @@ public class Scanner {
 		mHandler.removeCallbacksAndMessages(null);
 
 		// Stop scan
-		if(mBluetoothLeScanner != null && mScanCallback != null && KnBle.gi().isBluetoothEnabled()) mBluetoothLeScanner.stopScan(mScanCallback);
+		stopLeScan();
 
 		// Scanned finished
 		setIsScanning(false);
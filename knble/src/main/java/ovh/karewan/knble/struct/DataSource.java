@@ -0,0 +1,130 @@
+package ovh.karewan.knble.struct;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+public abstract class DataSource {
+	/**
+	 * Get the total length
+	 * @return long (-1 if unknown)
+	 */
+	public abstract long length();
+
+	/**
+	 * Read the next bytes
+	 * @param buffer Destination buffer
+	 * @param offset Offset in the buffer
+	 * @param length Max bytes to read
+	 * @return Bytes read (-1 at the end of the data)
+	 * @throws IOException On read error
+	 */
+	public abstract int read(@NonNull byte[] buffer, int offset, int length) throws IOException;
+
+	/**
+	 * Data from a bytes array (not copied)
+	 * @param data The data
+	 * @return DataSource
+	 */
+	@NonNull
+	public static DataSource of(@NonNull byte[] data) {
+		return of(ByteBuffer.wrap(data));
+	}
+
+	/**
+	 * Data from a ByteBuffer (from its position to its limit)
+	 * @param buffer The buffer
+	 * @return DataSource
+	 */
+	@NonNull
+	public static DataSource of(@NonNull ByteBuffer buffer) {
+		ByteBuffer bb = buffer.duplicate();
+		long length = bb.remaining();
+
+		return new DataSource() {
+			@Override
+			public long length() {
+				return length;
+			}
+
+			@Override
+			public int read(@NonNull byte[] dst, int offset, int len) {
+				if(!bb.hasRemaining()) return -1;
+				int n = Math.min(len, bb.remaining());
+				bb.get(dst, offset, n);
+				return n;
+			}
+		};
+	}
+
+	/**
+	 * Data from an InputStream (the stream is not closed)
+	 * @param is The input stream
+	 * @param length Total length (-1 if unknown)
+	 * @return DataSource
+	 */
+	@NonNull
+	public static DataSource of(@NonNull InputStream is, long length) {
+		return new DataSource() {
+			@Override
+			public long length() {
+				return length;
+			}
+
+			@Override
+			public int read(@NonNull byte[] dst, int offset, int len) throws IOException {
+				return is.read(dst, offset, len);
+			}
+		};
+	}
+
+	/**
+	 * Data from a FileChannel, from its current position (the channel is not closed)
+	 * @param channel The file channel
+	 * @return DataSource
+	 * @throws IOException On read error
+	 */
+	@NonNull
+	public static DataSource of(@NonNull FileChannel channel) throws IOException {
+		long length = channel.size() - channel.position();
+
+		return new DataSource() {
+			private ByteBuffer mWrapper;
+
+			@Override
+			public long length() {
+				return length;
+			}
+
+			@Override
+			public int read(@NonNull byte[] dst, int offset, int len) throws IOException {
+				// Reuse the wrapper as long as the destination buffer is the same
+				if(mWrapper == null || mWrapper.array() != dst) mWrapper = ByteBuffer.wrap(dst);
+
+				// Use Buffer methods (ByteBuffer covariant overrides are missing on old Android versions)
+				Buffer b = mWrapper;
+				b.clear();
+				b.limit(offset + len);
+				b.position(offset);
+
+				return channel.read(mWrapper);
+			}
+		};
+	}
+
+	/**
+	 * Data from a memory-mapped FileChannel, from its current position (the channel is not closed)
+	 * @param channel The file channel
+	 * @return DataSource
+	 * @throws IOException On map error
+	 */
+	@NonNull
+	public static DataSource map(@NonNull FileChannel channel) throws IOException {
+		long position = channel.position();
+		return of(channel.map(FileChannel.MapMode.READ_ONLY, position, channel.size() - position));
+	}
+}
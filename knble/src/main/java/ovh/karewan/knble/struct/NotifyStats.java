@@ -0,0 +1,37 @@
+package ovh.karewan.knble.struct;
+
+public class NotifyStats {
+	private final long mReceived;
+	private final long mDropped;
+	private final float mRate;
+
+	public NotifyStats(long received, long dropped, float rate) {
+		mReceived = received;
+		mDropped = dropped;
+		mRate = rate;
+	}
+
+	/**
+	 * Notifications received since the notification has been enabled
+	 * @return long
+	 */
+	public long getReceived() {
+		return mReceived;
+	}
+
+	/**
+	 * Notifications that could not be delivered
+	 * @return long
+	 */
+	public long getDropped() {
+		return mDropped;
+	}
+
+	/**
+	 * Notification rate over the last second
+	 * @return float (Hz)
+	 */
+	public float getRate() {
+		return mRate;
+	}
+}
@@ -0,0 +1,66 @@
+package ovh.karewan.knble.struct;
+
+public class ReconnectStats {
+	private final int mLinkLosses;
+	private final int mReconnected;
+	private final int mFailed;
+	private final long mLastDuration;
+	private final long mAverageDuration;
+
+	public ReconnectStats(int linkLosses, int reconnected, int failed, long lastDuration, long averageDuration) {
+		mLinkLosses = linkLosses;
+		mReconnected = reconnected;
+		mFailed = failed;
+		mLastDuration = lastDuration;
+		mAverageDuration = averageDuration;
+	}
+
+	/**
+	 * Link losses handled by the reconnect policy
+	 * @return int
+	 */
+	public int getLinkLosses() {
+		return mLinkLosses;
+	}
+
+	/**
+	 * Successful reconnections
+	 * @return int
+	 */
+	public int getReconnected() {
+		return mReconnected;
+	}
+
+	/**
+	 * Reconnections given up (retry budget exhausted)
+	 * @return int
+	 */
+	public int getFailed() {
+		return mFailed;
+	}
+
+	/**
+	 * Reconnection success rate
+	 * @return float (0..1, 0 if no link loss)
+	 */
+	public float getSuccessRate() {
+		int done = mReconnected + mFailed;
+		return done == 0 ? 0f : (float) mReconnected / done;
+	}
+
+	/**
+	 * Time to reconnect of the last reconnection
+	 * @return long (ms, -1 if unknown)
+	 */
+	public long getLastDuration() {
+		return mLastDuration;
+	}
+
+	/**
+	 * Average time to reconnect
+	 * @return long (ms, -1 if unknown)
+	 */
+	public long getAverageDuration() {
+		return mAverageDuration;
+	}
+}
@@ -0,0 +1,22 @@
+package ovh.karewan.knble.tasks;
+
+import androidx.annotation.Nullable;
+
+public class ConnectionPriorityTask extends GattTask {
+	private final int mConnectionPriority;
+	private final ResultListener mListener;
+
+	public ConnectionPriorityTask(int connectionPriority, @Nullable ResultListener listener) {
+		mConnectionPriority = connectionPriority;
+		mListener = listener;
+	}
+
+	public int getConnectionPriority() {
+		return mConnectionPriority;
+	}
+
+	@Nullable
+	public ResultListener getListener() {
+		return mListener;
+	}
+}
@@ -16,22 +16,33 @@ public class DisableNotifyTask extends GattTask {
 	private final UUID mCharacteristicUUID;
 	private final BluetoothGattCharacteristic mCharacteristic;
 	private final UUID mDescriptorUUID;
-	private BleNotifyCallback mCallback;
+	private final BleNotifyCallback mCallback;
+	private BleNotifyCallback[] mRemovedCallbacks;
 
 	public DisableNotifyTask(@NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, @NonNull UUID descriptorUUID) {
+		this(serviceUUID, characteristicUUID, descriptorUUID, null);
+	}
+
+	public DisableNotifyTask(@NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, @NonNull UUID descriptorUUID, @Nullable BleNotifyCallback callback) {
 		mServiceUUID = serviceUUID;
 		mService = null;
 		mCharacteristicUUID = characteristicUUID;
 		mCharacteristic = null;
 		mDescriptorUUID = descriptorUUID;
+		mCallback = callback;
 	}
 
 	public DisableNotifyTask(@NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, @NonNull UUID descriptorUUID) {
+		this(service, characteristic, descriptorUUID, null);
+	}
+
+	public DisableNotifyTask(@NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, @NonNull UUID descriptorUUID, @Nullable BleNotifyCallback callback) {
 		mServiceUUID = null;
 		mService = service;
 		mCharacteristicUUID = null;
 		mCharacteristic = characteristic;
 		mDescriptorUUID = descriptorUUID;
+		mCallback = callback;
 	}
 
 	@Nullable
@@ -59,12 +70,21 @@ public class DisableNotifyTask extends GattTask {
 		return mDescriptorUUID;
 	}
 
-	public void setCallback(@NonNull BleNotifyCallback callback) {
-		mCallback = callback;
-	}
-
+	/**
+	 * Get the subscriber to remove
+	 * @return BleNotifyCallback or null to remove all the subscribers
+	 */
 	@Nullable
 	public BleNotifyCallback getCallback() {
 		return mCallback;
 	}
+
+	public void setRemovedCallbacks(@NonNull BleNotifyCallback[] callbacks) {
+		mRemovedCallbacks = callbacks;
+	}
+
+	@Nullable
+	public BleNotifyCallback[] getRemovedCallbacks() {
+		return mRemovedCallbacks;
+	}
 }
@@ -8,6 +8,8 @@ import androidx.annotation.Nullable;
 
 import java.util.UUID;
 
+import ovh.karewan.knble.ble.NotifyBatchSettings;
+import ovh.karewan.knble.interfaces.BleBatchNotifyCallback;
 import ovh.karewan.knble.interfaces.BleNotifyCallback;
 
 public class EnableNotifyTask extends GattTask {
@@ -17,6 +19,8 @@ public class EnableNotifyTask extends GattTask {
 	private final BluetoothGattCharacteristic mCharacteristic;
 	private final UUID mDescriptorUUID;
 	private final BleNotifyCallback mCallback;
+	private final NotifyBatchSettings mBatchSettings;
+	private ResultListener mResultListener;
 
 	public EnableNotifyTask(@NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, @NonNull UUID descriptorUUID, @NonNull BleNotifyCallback callback) {
 		mServiceUUID = serviceUUID;
@@ -25,6 +29,17 @@ public class EnableNotifyTask extends GattTask {
 		mCharacteristic = null;
 		mDescriptorUUID = descriptorUUID;
 		mCallback = callback;
+		mBatchSettings = null;
+	}
+
+	public EnableNotifyTask(@NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, @NonNull UUID descriptorUUID, @NonNull NotifyBatchSettings batchSettings, @NonNull BleBatchNotifyCallback callback) {
+		mServiceUUID = serviceUUID;
+		mService = null;
+		mCharacteristicUUID = characteristicUUID;
+		mCharacteristic = null;
+		mDescriptorUUID = descriptorUUID;
+		mCallback = callback;
+		mBatchSettings = batchSettings;
 	}
 
 	public EnableNotifyTask(@NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, @NonNull UUID descriptorUUID, @NonNull BleNotifyCallback callback) {
@@ -34,6 +49,17 @@ public class EnableNotifyTask extends GattTask {
 		mCharacteristic = characteristic;
 		mDescriptorUUID = descriptorUUID;
 		mCallback = callback;
+		mBatchSettings = null;
+	}
+
+	public EnableNotifyTask(@NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, @NonNull UUID descriptorUUID, @NonNull NotifyBatchSettings batchSettings, @NonNull BleBatchNotifyCallback callback) {
+		mServiceUUID = null;
+		mService = service;
+		mCharacteristicUUID = null;
+		mCharacteristic = characteristic;
+		mDescriptorUUID = descriptorUUID;
+		mCallback = callback;
+		mBatchSettings = batchSettings;
 	}
 
 	@Nullable
@@ -65,4 +91,40 @@ public class EnableNotifyTask extends GattTask {
 	public BleNotifyCallback getCallback() {
 		return mCallback;
 	}
+
+	/**
+	 * Get the batch settings
+	 * @return NotifyBatchSettings or null if the notifications are not batched
+	 */
+	@Nullable
+	public NotifyBatchSettings getBatchSettings() {
+		return mBatchSettings;
+	}
+
+	public void setResultListener(@Nullable ResultListener listener) {
+		mResultListener = listener;
+	}
+
+	/**
+	 * Notification enabled (callback and result listener)
+	 */
+	public void notifyEnabled() {
+		mCallback.onNotifyEnabled();
+		if(mResultListener != null) mResultListener.onResult(true);
+	}
+
+	/**
+	 * The callback is already subscribed (result listener only, the callback got onNotifyEnabled at its subscription)
+	 */
+	public void notifyAlreadyEnabled() {
+		if(mResultListener != null) mResultListener.onResult(true);
+	}
+
+	/**
+	 * Notification not enabled (callback and result listener)
+	 */
+	public void notifyDisabled() {
+		mCallback.onNotifyDisabled();
+		if(mResultListener != null) mResultListener.onResult(false);
+	}
 }
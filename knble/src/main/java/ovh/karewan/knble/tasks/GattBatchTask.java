@@ -0,0 +1,233 @@
+package ovh.karewan.knble.tasks;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattService;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import ovh.karewan.knble.KnBle;
+import ovh.karewan.knble.Utils;
+import ovh.karewan.knble.interfaces.BleBatchCallback;
+import ovh.karewan.knble.interfaces.BleNotifyCallback;
+import ovh.karewan.knble.interfaces.BleReadCallback;
+import ovh.karewan.knble.interfaces.BleWriteCallback;
+
+/**
+ * Ordered list of tasks enqueued at once and executed back-to-back (no other task can interleave)
+ */
+public class GattBatchTask extends GattTask {
+	/**
+	 * Listener of the steps completion
+	 */
+	public interface StepListener {
+		/**
+		 * On step complete
+		 * @param step The step index
+		 * @param success The step result
+		 * @param duration The step duration (ms)
+		 */
+		void onStepComplete(int step, boolean success, long duration);
+	}
+
+	private final List<GattTask> mSteps = new ArrayList<>();
+	private boolean[] mResults;
+	private boolean mStopOnFailure;
+	private BleBatchCallback mCallback;
+	private StepListener mStepListener;
+	private int mCurrent = -1;
+	private long mStepStart;
+	private boolean mFinished;
+
+	private GattBatchTask() {}
+
+	/**
+	 * Get the next step
+	 * @return GattTask or null if all the steps are done (or a step failed with stop on failure)
+	 */
+	@Nullable
+	public GattTask nextStep() {
+		if(mCurrent >= 0) {
+			if(mStepListener != null) mStepListener.onStepComplete(mCurrent, mResults[mCurrent], SystemClock.elapsedRealtime() - mStepStart);
+			if(mStopOnFailure && !mResults[mCurrent]) return null;
+		}
+
+		mCurrent++;
+		if(mCurrent >= mSteps.size()) return null;
+
+		mStepStart = SystemClock.elapsedRealtime();
+		return mSteps.get(mCurrent);
+	}
+
+	/**
+	 * Report the batch result (once)
+	 */
+	public void finish() {
+		if(mFinished) return;
+		mFinished = true;
+
+		boolean success = true;
+		for(boolean result : mResults) success &= result;
+		mCallback.onBatchComplete(success, mResults.clone());
+	}
+
+	public int getStepsCount() {
+		return mSteps.size();
+	}
+
+	/**
+	 * Record the result of a step (only while it is the current step)
+	 * @param step The step index
+	 * @param success boolean
+	 */
+	private void setResult(int step, boolean success) {
+		if(step == mCurrent && !mFinished) mResults[step] = success;
+	}
+
+	/**
+	 * Builder
+	 */
+	public static final class Builder {
+		private final GattBatchTask mBatch = new GattBatchTask();
+		private boolean mStopOnFailure = false;
+		private StepListener mStepListener = null;
+
+		/**
+		 * Stop the batch at the first failed step
+		 * @param stopOnFailure boolean
+		 * @return Builder
+		 */
+		public Builder setStopOnFailure(boolean stopOnFailure) {
+			mStopOnFailure = stopOnFailure;
+			return this;
+		}
+
+		/**
+		 * Listen to the completion (and duration) of each step
+		 * @param listener StepListener
+		 * @return Builder
+		 */
+		public Builder setStepListener(@Nullable StepListener listener) {
+			mStepListener = listener;
+			return this;
+		}
+
+		public Builder requestMtu(int mtu) {
+			int step = mBatch.mSteps.size();
+			UpdateMtuTask task = new UpdateMtuTask(mtu, null);
+			task.setResultListener(success -> mBatch.setResult(step, success));
+			mBatch.mSteps.add(task);
+			return this;
+		}
+
+		public Builder setPreferredPhy(int txPhy, int rxPhy, int phyOptions) {
+			int step = mBatch.mSteps.size();
+			UpdatePhyTask task = new UpdatePhyTask(txPhy, rxPhy, phyOptions, null);
+			task.setResultListener(success -> mBatch.setResult(step, success));
+			mBatch.mSteps.add(task);
+			return this;
+		}
+
+		public Builder requestConnectionPriority(int connectionPriority) {
+			int step = mBatch.mSteps.size();
+			mBatch.mSteps.add(new ConnectionPriorityTask(connectionPriority, success -> mBatch.setResult(step, success)));
+			return this;
+		}
+
+		public Builder enableNotify(@NonNull String serviceUUID, @NonNull String characteristicUUID, @NonNull BleNotifyCallback callback) {
+			return enableNotify(KnBle.gi().getUuidCache().get(serviceUUID), KnBle.gi().getUuidCache().get(characteristicUUID), callback);
+		}
+
+		public Builder enableNotify(@NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, @NonNull BleNotifyCallback callback) {
+			return addNotify(new EnableNotifyTask(serviceUUID, characteristicUUID, Utils.NOTIFY_DESCRIPTOR_UUID, callback));
+		}
+
+		public Builder enableNotify(@NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, @NonNull BleNotifyCallback callback) {
+			return addNotify(new EnableNotifyTask(service, characteristic, Utils.NOTIFY_DESCRIPTOR_UUID, callback));
+		}
+
+		private Builder addNotify(@NonNull EnableNotifyTask task) {
+			int step = mBatch.mSteps.size();
+			task.setResultListener(success -> mBatch.setResult(step, success));
+			mBatch.mSteps.add(task);
+			return this;
+		}
+
+		public Builder write(@NonNull String serviceUUID, @NonNull String characteristicUUID, @NonNull byte[] data, boolean noResponse, @Nullable BleWriteCallback callback) {
+			return write(KnBle.gi().getUuidCache().get(serviceUUID), KnBle.gi().getUuidCache().get(characteristicUUID), data, noResponse, callback);
+		}
+
+		public Builder write(@NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, @NonNull byte[] data, boolean noResponse, @Nullable BleWriteCallback callback) {
+			mBatch.mSteps.add(new WriteCharaTask(serviceUUID, characteristicUUID, data, noResponse, wrap(callback)));
+			return this;
+		}
+
+		public Builder write(@NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, @NonNull byte[] data, boolean noResponse, @Nullable BleWriteCallback callback) {
+			mBatch.mSteps.add(new WriteCharaTask(service, characteristic, data, noResponse, wrap(callback)));
+			return this;
+		}
+
+		public Builder read(@NonNull String serviceUUID, @NonNull String characteristicUUID, @NonNull BleReadCallback callback) {
+			return read(KnBle.gi().getUuidCache().get(serviceUUID), KnBle.gi().getUuidCache().get(characteristicUUID), callback);
+		}
+
+		public Builder read(@NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, @NonNull BleReadCallback callback) {
+			mBatch.mSteps.add(new ReadCharaTask(serviceUUID, characteristicUUID, wrap(callback)));
+			return this;
+		}
+
+		public Builder read(@NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, @NonNull BleReadCallback callback) {
+			mBatch.mSteps.add(new ReadCharaTask(service, characteristic, wrap(callback)));
+			return this;
+		}
+
+		@NonNull
+		private BleWriteCallback wrap(@Nullable BleWriteCallback callback) {
+			int step = mBatch.mSteps.size();
+			return new BleWriteCallback() {
+				@Override
+				public void onWriteFailed() {
+					mBatch.setResult(step, false);
+					if(callback != null) callback.onWriteFailed();
+				}
+
+				@Override
+				public void onWriteSuccess() {
+					mBatch.setResult(step, true);
+					if(callback != null) callback.onWriteSuccess();
+				}
+			};
+		}
+
+		@NonNull
+		private BleReadCallback wrap(@NonNull BleReadCallback callback) {
+			int step = mBatch.mSteps.size();
+			return new BleReadCallback() {
+				@Override
+				public void onReadSuccess(@NonNull byte[] data) {
+					mBatch.setResult(step, true);
+					callback.onReadSuccess(data);
+				}
+
+				@Override
+				public void onReadFailed() {
+					mBatch.setResult(step, false);
+					callback.onReadFailed();
+				}
+			};
+		}
+
+		public GattBatchTask build(@NonNull BleBatchCallback callback) {
+			mBatch.mResults = new boolean[mBatch.mSteps.size()];
+			mBatch.mStopOnFailure = mStopOnFailure;
+			mBatch.mStepListener = mStepListener;
+			mBatch.mCallback = callback;
+			return mBatch;
+		}
+	}
+}
@@ -1,3 +1,39 @@
 package ovh.karewan.knble.tasks;
 
-public class GattTask {}
+public class GattTask {
+	/**
+	 * Listener of a task result (used by the batches)
+	 */
+	public interface ResultListener {
+		void onResult(boolean success);
+	}
+
+	private int mRetry;
+
+	/**
+	 * Get the retry counter (retries in case of gatt busy)
+	 * @return int
+	 */
+	public int getRetry() {
+		return mRetry;
+	}
+
+	/**
+	 * Increment the retry counter
+	 */
+	public void incrementRetry() {
+		mRetry++;
+	}
+
+	/**
+	 * Reset the task state (before reuse)
+	 */
+	protected void reset() {
+		mRetry = 0;
+	}
+
+	/**
+	 * Recycle the task once ended (no-op if the task has not been obtained from a pool)
+	 */
+	public void recycle() {}
+}
@@ -0,0 +1,77 @@
+package ovh.karewan.knble.tasks;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattService;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import java.util.UUID;
+
+import ovh.karewan.knble.interfaces.BlePipelinedWriteCallback;
+import ovh.karewan.knble.struct.DataSource;
+
+public class PipelinedWriteCharaTask extends SplittedWriteCharaTask {
+	private final BlePipelinedWriteCallback mPipelinedCallback;
+	private int mInFlight;
+	private int mAckedPkg;
+	private long mBytesSent;
+	private long mBytesAcked;
+	private long mStartTime;
+
+	public PipelinedWriteCharaTask(@NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, @NonNull byte[] data, int splitSize, @NonNull BlePipelinedWriteCallback callback) {
+		super(serviceUUID, characteristicUUID, data, splitSize, true, 0, callback);
+		mPipelinedCallback = callback;
+	}
+
+	public PipelinedWriteCharaTask(@NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, @NonNull byte[] data, int splitSize, @NonNull BlePipelinedWriteCallback callback) {
+		super(service, characteristic, data, splitSize, true, 0, callback);
+		mPipelinedCallback = callback;
+	}
+
+	public PipelinedWriteCharaTask(@NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, @NonNull DataSource source, int splitSize, @NonNull BlePipelinedWriteCallback callback) {
+		super(serviceUUID, characteristicUUID, source, splitSize, true, 0, callback);
+		mPipelinedCallback = callback;
+	}
+
+	public PipelinedWriteCharaTask(@NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, @NonNull DataSource source, int splitSize, @NonNull BlePipelinedWriteCallback callback) {
+		super(service, characteristic, source, splitSize, true, 0, callback);
+		mPipelinedCallback = callback;
+	}
+
+	@NonNull
+	@Override
+	public BlePipelinedWriteCallback getCallback() {
+		return mPipelinedCallback;
+	}
+
+	public void start() {
+		mStartTime = SystemClock.elapsedRealtime();
+	}
+
+	public void onPacketSent(int length) {
+		mInFlight++;
+		mBytesSent += length;
+	}
+
+	public void onPacketAcked() {
+		if(mInFlight > 0) mInFlight--;
+		mAckedPkg++;
+
+		// All packets have the chunk size except the last one
+		mBytesAcked = Math.min((long) mAckedPkg * getChunkSize(), mBytesSent);
+	}
+
+	public int getInFlight() {
+		return mInFlight;
+	}
+
+	public int getAckedPkg() {
+		return mAckedPkg;
+	}
+
+	public long getBytesPerSecond() {
+		long elapsed = Math.max(1, SystemClock.elapsedRealtime() - mStartTime);
+		return mBytesAcked * 1000 / elapsed;
+	}
+}
@@ -6,29 +6,105 @@ import android.bluetooth.BluetoothGattService;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.ArrayList;
+import java.util.Objects;
 import java.util.UUID;
 
+import ovh.karewan.knble.KnBle;
 import ovh.karewan.knble.interfaces.BleReadCallback;
 
 public class ReadCharaTask extends GattTask {
-	private final UUID mServiceUUID;
-	private final BluetoothGattService mService;
-	private final UUID mCharacteristicUUID;
-	private final BluetoothGattCharacteristic mCharacteristic;
-	private final BleReadCallback mCallback;
+	private static final TaskPool<ReadCharaTask> sPool = new TaskPool<>(16);
+	private UUID mServiceUUID;
+	private BluetoothGattService mService;
+	private UUID mCharacteristicUUID;
+	private BluetoothGattCharacteristic mCharacteristic;
+	private BleReadCallback mCallback;
+	private BluetoothGattCharacteristic mResolvedCharacteristic;
+	private long mCacheGeneration;
+	private ArrayList<BleReadCallback> mCoalesced;
+	private boolean mDone;
+	private boolean mPooled;
+
+	/**
+	 * Deliver the result to the caller and to the coalesced callers
+	 */
+	private final BleReadCallback mDispatcher = new BleReadCallback() {
+		@Override
+		public void onReadSuccess(@NonNull byte[] data) {
+			BleReadCallback callback;
+			ArrayList<BleReadCallback> coalesced;
+
+			synchronized(ReadCharaTask.this) {
+				mDone = true;
+				callback = mCallback;
+				coalesced = mCoalesced;
+			}
+
+			callback.onReadSuccess(data);
+			if(coalesced != null) for(BleReadCallback c : coalesced) c.onReadSuccess(data);
+		}
+
+		@Override
+		public void onReadFailed() {
+			BleReadCallback callback;
+			ArrayList<BleReadCallback> coalesced;
+
+			synchronized(ReadCharaTask.this) {
+				mDone = true;
+				callback = mCallback;
+				coalesced = mCoalesced;
+			}
+
+			callback.onReadFailed();
+			if(coalesced != null) for(BleReadCallback c : coalesced) c.onReadFailed();
+		}
+	};
 
 	public ReadCharaTask(@NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, @NonNull BleReadCallback callback) {
-		mServiceUUID = serviceUUID;
-		mService = null;
-		mCharacteristicUUID = characteristicUUID;
-		mCharacteristic = null;
-		mCallback = callback;
+		set(serviceUUID, null, characteristicUUID, null, callback);
 	}
 
 	public ReadCharaTask(@NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, @NonNull BleReadCallback callback) {
-		mServiceUUID = null;
+		set(null, service, null, characteristic, callback);
+	}
+
+	/**
+	 * Obtain a task (recycled if KnBle.POOL_TASKS is enabled)
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @param callback The callback
+	 * @return ReadCharaTask
+	 */
+	@NonNull
+	public static ReadCharaTask obtain(@NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, @NonNull BleReadCallback callback) {
+		ReadCharaTask task = sPool.acquire();
+		if(task == null) task = new ReadCharaTask(serviceUUID, characteristicUUID, callback);
+		else task.set(serviceUUID, null, characteristicUUID, null, callback);
+		task.mPooled = KnBle.POOL_TASKS;
+		return task;
+	}
+
+	/**
+	 * Obtain a task (recycled if KnBle.POOL_TASKS is enabled)
+	 * @param service The service
+	 * @param characteristic The characteristic
+	 * @param callback The callback
+	 * @return ReadCharaTask
+	 */
+	@NonNull
+	public static ReadCharaTask obtain(@NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, @NonNull BleReadCallback callback) {
+		ReadCharaTask task = sPool.acquire();
+		if(task == null) task = new ReadCharaTask(service, characteristic, callback);
+		else task.set(null, service, null, characteristic, callback);
+		task.mPooled = KnBle.POOL_TASKS;
+		return task;
+	}
+
+	private void set(@Nullable UUID serviceUUID, @Nullable BluetoothGattService service, @Nullable UUID characteristicUUID, @Nullable BluetoothGattCharacteristic characteristic, @NonNull BleReadCallback callback) {
+		mServiceUUID = serviceUUID;
 		mService = service;
-		mCharacteristicUUID = null;
+		mCharacteristicUUID = characteristicUUID;
 		mCharacteristic = characteristic;
 		mCallback = callback;
 	}
@@ -53,8 +129,102 @@ public class ReadCharaTask extends GattTask {
 		return mCharacteristic;
 	}
 
+	/**
+	 * Get the callback (delivers to all the coalesced callers)
+	 * @return BleReadCallback
+	 */
 	@NonNull
 	public BleReadCallback getCallback() {
+		return mDispatcher;
+	}
+
+	/**
+	 * Get the callback of the caller which created the task
+	 * @return BleReadCallback
+	 */
+	@NonNull
+	public BleReadCallback getCallerCallback() {
 		return mCallback;
 	}
+
+	/**
+	 * Check if the task reads the same characteristic
+	 * @param other The other task
+	 * @return boolean
+	 */
+	public boolean isSameAttribute(@NonNull ReadCharaTask other) {
+		if(mCharacteristic != null && other.mCharacteristic != null) return mCharacteristic == other.mCharacteristic;
+		return Objects.equals(resolveServiceUUID(), other.resolveServiceUUID()) && Objects.equals(resolveCharacteristicUUID(), other.resolveCharacteristicUUID());
+	}
+
+	/**
+	 * Get the service UUID (from the service if given)
+	 * @return UUID
+	 */
+	@Nullable
+	public UUID resolveServiceUUID() {
+		return mService != null ? mService.getUuid() : mServiceUUID;
+	}
+
+	/**
+	 * Get the characteristic UUID (from the characteristic if given)
+	 * @return UUID
+	 */
+	@Nullable
+	public UUID resolveCharacteristicUUID() {
+		return mCharacteristic != null ? mCharacteristic.getUuid() : mCharacteristicUUID;
+	}
+
+	/**
+	 * Attach the callback of a duplicate read to this task
+	 * @param callback The callback
+	 * @return false if the result has already been delivered
+	 */
+	public synchronized boolean coalesce(@NonNull BleReadCallback callback) {
+		if(mDone) return false;
+		if(mCoalesced == null) mCoalesced = new ArrayList<>(2);
+		mCoalesced.add(callback);
+		return true;
+	}
+
+	public void setResolvedCharacteristic(@NonNull BluetoothGattCharacteristic characteristic) {
+		mResolvedCharacteristic = characteristic;
+	}
+
+	@Nullable
+	public BluetoothGattCharacteristic getResolvedCharacteristic() {
+		return mResolvedCharacteristic;
+	}
+
+	public void setCacheGeneration(long generation) {
+		mCacheGeneration = generation;
+	}
+
+	public long getCacheGeneration() {
+		return mCacheGeneration;
+	}
+
+	@Override
+	protected void reset() {
+		super.reset();
+		mServiceUUID = null;
+		mService = null;
+		mCharacteristicUUID = null;
+		mCharacteristic = null;
+		mCallback = null;
+		mResolvedCharacteristic = null;
+		mCacheGeneration = 0;
+		synchronized(this) {
+			mCoalesced = null;
+			mDone = false;
+		}
+	}
+
+	@Override
+	public void recycle() {
+		if(!mPooled) return;
+		mPooled = false;
+		reset();
+		sPool.release(this);
+	}
 }
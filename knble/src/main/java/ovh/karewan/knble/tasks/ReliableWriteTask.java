@@ -0,0 +1,132 @@
+package ovh.karewan.knble.tasks;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattService;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import ovh.karewan.knble.KnBle;
+import ovh.karewan.knble.interfaces.BleWriteCallback;
+
+public class ReliableWriteTask extends GattTask {
+	private final List<Write> mWrites;
+	private final BleWriteCallback mCallback;
+	private BluetoothGattCharacteristic[] mCharacteristics;
+	private int mIndex;
+	private boolean mExecuting;
+
+	private ReliableWriteTask(@NonNull List<Write> writes, @NonNull BleWriteCallback callback) {
+		mWrites = writes;
+		mCallback = callback;
+	}
+
+	@NonNull
+	public List<Write> getWrites() {
+		return mWrites;
+	}
+
+	@NonNull
+	public BleWriteCallback getCallback() {
+		return mCallback;
+	}
+
+	public void setCharacteristics(@NonNull BluetoothGattCharacteristic[] characteristics) {
+		mCharacteristics = characteristics;
+	}
+
+	@Nullable
+	public BluetoothGattCharacteristic getCurrentCharacteristic() {
+		return mCharacteristics == null || mIndex >= mCharacteristics.length ? null : mCharacteristics[mIndex];
+	}
+
+	@Nullable
+	public Write getCurrentWrite() {
+		return mIndex >= mWrites.size() ? null : mWrites.get(mIndex);
+	}
+
+	public void next() {
+		mIndex++;
+	}
+
+	public void setExecuting() {
+		mExecuting = true;
+	}
+
+	public boolean isExecuting() {
+		return mExecuting;
+	}
+
+	/**
+	 * A write of the transaction
+	 */
+	public static final class Write {
+		private final UUID mServiceUUID;
+		private final BluetoothGattService mService;
+		private final UUID mCharacteristicUUID;
+		private final BluetoothGattCharacteristic mCharacteristic;
+		private final byte[] mData;
+
+		private Write(@Nullable UUID serviceUUID, @Nullable BluetoothGattService service, @Nullable UUID characteristicUUID, @Nullable BluetoothGattCharacteristic characteristic, @NonNull byte[] data) {
+			mServiceUUID = serviceUUID;
+			mService = service;
+			mCharacteristicUUID = characteristicUUID;
+			mCharacteristic = characteristic;
+			mData = data;
+		}
+
+		@Nullable
+		public UUID getServiceUUID() {
+			return mServiceUUID;
+		}
+
+		@Nullable
+		public BluetoothGattService getService() {
+			return mService;
+		}
+
+		@Nullable
+		public UUID getCharacteristicUUID() {
+			return mCharacteristicUUID;
+		}
+
+		@Nullable
+		public BluetoothGattCharacteristic getCharacteristic() {
+			return mCharacteristic;
+		}
+
+		@NonNull
+		public byte[] getData() {
+			return mData;
+		}
+	}
+
+	/**
+	 * Builder (each value must fit in a single prepare write => MTU - 5)
+	 */
+	public static final class Builder {
+		private final List<Write> mWrites = new ArrayList<>();
+
+		public Builder write(@NonNull String serviceUUID, @NonNull String characteristicUUID, @NonNull byte[] data) {
+			return write(KnBle.gi().getUuidCache().get(serviceUUID), KnBle.gi().getUuidCache().get(characteristicUUID), data);
+		}
+
+		public Builder write(@NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, @NonNull byte[] data) {
+			mWrites.add(new Write(serviceUUID, null, characteristicUUID, null, data));
+			return this;
+		}
+
+		public Builder write(@NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, @NonNull byte[] data) {
+			mWrites.add(new Write(null, service, null, characteristic, data));
+			return this;
+		}
+
+		public ReliableWriteTask build(@NonNull BleWriteCallback callback) {
+			return new ReliableWriteTask(new ArrayList<>(mWrites), callback);
+		}
+	}
+}
@@ -6,31 +6,42 @@ import android.bluetooth.BluetoothGattService;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.io.IOException;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
 import ovh.karewan.knble.interfaces.BleSplittedWriteCallback;
+import ovh.karewan.knble.struct.DataSource;
 
 public class SplittedWriteCharaTask extends GattTask {
 	private final UUID mServiceUUID;
 	private final BluetoothGattService mService;
 	private final UUID mCharacteristicUUID;
 	private final BluetoothGattCharacteristic mCharacteristic;
-	private final byte[] mData;
+	private final DataSource mSource;
 	private final int mSplitSize;
 	private final boolean mNoResponse;
 	private final long mIntervalBetweenTwoPackage;
 	private final BleSplittedWriteCallback mCallback;
-	private final ConcurrentLinkedQueue<byte[]> mQueue = new ConcurrentLinkedQueue<>();
+	private int mChunkSize;
+	private int mSentPkg;
 	private int mTotalPkg;
+	private byte[] mChunk;
+	private byte[] mBuffer;
+	private byte[] mTailBuffer;
+	private boolean mEnd;
+	private boolean mFailed;
 	private Runnable mRunnable;
 
 	public SplittedWriteCharaTask(@NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, @NonNull byte[] data, int splitSize, boolean noResponse, long intervalBetweenTwoPackage, @NonNull BleSplittedWriteCallback callback) {
+		this(serviceUUID, characteristicUUID, DataSource.of(data), splitSize, noResponse, intervalBetweenTwoPackage, callback);
+	}
+
+	public SplittedWriteCharaTask(@NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, @NonNull DataSource source, int splitSize, boolean noResponse, long intervalBetweenTwoPackage, @NonNull BleSplittedWriteCallback callback) {
 		mServiceUUID = serviceUUID;
 		mService = null;
 		mCharacteristicUUID = characteristicUUID;
 		mCharacteristic = null;
-		mData = data;
+		mSource = source;
 		mSplitSize = splitSize;
 		mNoResponse = noResponse;
 		mIntervalBetweenTwoPackage = intervalBetweenTwoPackage;
@@ -38,11 +49,15 @@ public class SplittedWriteCharaTask extends GattTask {
 	}
 
 	public SplittedWriteCharaTask(@NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, @NonNull byte[] data, int splitSize, boolean noResponse, long intervalBetweenTwoPackage, @NonNull BleSplittedWriteCallback callback) {
+		this(service, characteristic, DataSource.of(data), splitSize, noResponse, intervalBetweenTwoPackage, callback);
+	}
+
+	public SplittedWriteCharaTask(@NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, @NonNull DataSource source, int splitSize, boolean noResponse, long intervalBetweenTwoPackage, @NonNull BleSplittedWriteCallback callback) {
 		mServiceUUID = null;
 		mService = service;
 		mCharacteristicUUID = null;
 		mCharacteristic = characteristic;
-		mData = data;
+		mSource = source;
 		mSplitSize = splitSize;
 		mNoResponse = noResponse;
 		mIntervalBetweenTwoPackage = intervalBetweenTwoPackage;
@@ -70,8 +85,8 @@ public class SplittedWriteCharaTask extends GattTask {
 	}
 
 	@NonNull
-	public byte[] getData() {
-		return mData;
+	public DataSource getSource() {
+		return mSource;
 	}
 
 	public int getSplitSize() {
@@ -91,23 +106,77 @@ public class SplittedWriteCharaTask extends GattTask {
 		return mCallback;
 	}
 
-	@NonNull
-	public ConcurrentLinkedQueue<byte[]> getQueue() {
-		return mQueue;
+	/**
+	 * Prepare the chunks (lazy windows over the source, nothing is read here)
+	 * @param chunkSize The chunk size
+	 */
+	public void prepareChunks(int chunkSize) {
+		mChunkSize = Math.max(1, chunkSize);
+		mSentPkg = 0;
+		mChunk = null;
+		mBuffer = null;
+		mTailBuffer = null;
+		mEnd = false;
+		mFailed = false;
+
+		long length = mSource.length();
+		mTotalPkg = length < 0 ? -1 : (length == 0 ? 1 : (int) ((length + mChunkSize - 1) / mChunkSize));
 	}
 
-	public int getQueueSize() {
-		return mQueue.size();
+	public int getChunkSize() {
+		return mChunkSize;
 	}
 
+	/**
+	 * Get the current chunk (the returned array is reused for the next chunks)
+	 * @return byte[] or null when all chunks have been sent
+	 * @throws IOException On source read error
+	 */
 	@Nullable
-	public byte[] peekQueue() {
-		return mQueue.peek();
+	public byte[] peekChunk() throws IOException {
+		if(mChunk != null || mEnd) return mChunk;
+
+		// Fill the buffer
+		if(mBuffer == null) mBuffer = new byte[mChunkSize];
+		int length = 0;
+		int read;
+		while(length < mChunkSize && (read = mSource.read(mBuffer, length, mChunkSize - length)) >= 0) length += read;
+
+		if(length == mChunkSize) {
+			mChunk = mBuffer;
+		} else if(length > 0 || mSentPkg == 0) {
+			// Only the last chunk can be smaller (or empty when there is no data at all)
+			mEnd = true;
+			if(mTailBuffer == null || mTailBuffer.length != length) mTailBuffer = new byte[length];
+			System.arraycopy(mBuffer, 0, mTailBuffer, 0, length);
+			mChunk = mTailBuffer;
+		} else {
+			// No more data
+			mEnd = true;
+		}
+
+		return mChunk;
 	}
 
-	@Nullable
-	public byte[] pollQueue() {
-		return mQueue.poll();
+	/**
+	 * Move to the next chunk
+	 */
+	public void nextChunk() {
+		if(mChunk == null) return;
+		mSentPkg++;
+		mChunk = null;
+	}
+
+	public int getSentPkg() {
+		return mSentPkg;
+	}
+
+	public void setFailed() {
+		mFailed = true;
+	}
+
+	public boolean isFailed() {
+		return mFailed;
 	}
 
 	@NonNull
@@ -120,10 +189,10 @@ public class SplittedWriteCharaTask extends GattTask {
 		return mRunnable;
 	}
 
-	public void setTotalPkg() {
-		mTotalPkg = mQueue.size();
-	}
-
+	/**
+	 * Get the total packets count
+	 * @return int (-1 if unknown)
+	 */
 	public int getTotalPkg() {
 		return mTotalPkg;
 	}
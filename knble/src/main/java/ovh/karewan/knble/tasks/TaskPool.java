@@ -0,0 +1,38 @@
+package ovh.karewan.knble.tasks;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+
+import ovh.karewan.knble.KnBle;
+
+/**
+ * Bounded pool of recyclable tasks (enabled with KnBle.POOL_TASKS)
+ */
+final class TaskPool<T extends GattTask> {
+	private final ArrayDeque<T> mPool;
+	private final int mMaxSize;
+
+	TaskPool(int maxSize) {
+		mPool = new ArrayDeque<>(maxSize);
+		mMaxSize = maxSize;
+	}
+
+	/**
+	 * Get a recycled task
+	 * @return T or null if the pool is empty or disabled
+	 */
+	@Nullable
+	synchronized T acquire() {
+		return KnBle.POOL_TASKS ? mPool.poll() : null;
+	}
+
+	/**
+	 * Give back a task (dropped if the pool is full or disabled)
+	 * @param task The task
+	 */
+	synchronized void release(@NonNull T task) {
+		if(KnBle.POOL_TASKS && mPool.size() < mMaxSize) mPool.push(task);
+	}
+}
@@ -7,6 +7,7 @@ import ovh.karewan.knble.interfaces.BleMtuChangedCallback;
 public class UpdateMtuTask extends GattTask {
 	private final int mMtu;
 	private final BleMtuChangedCallback mCallback;
+	private ResultListener mResultListener;
 
 	public UpdateMtuTask(int mtu, @Nullable BleMtuChangedCallback callback) {
 		mMtu = mtu;
@@ -21,4 +22,16 @@ public class UpdateMtuTask extends GattTask {
 	public BleMtuChangedCallback getCallback() {
 		return mCallback;
 	}
+
+	public void setResultListener(@Nullable ResultListener listener) {
+		mResultListener = listener;
+	}
+
+	/**
+	 * MTU exchange done (result listener)
+	 * @param success boolean
+	 */
+	public void notifyResult(boolean success) {
+		if(mResultListener != null) mResultListener.onResult(success);
+	}
 }
@@ -9,6 +9,7 @@ public class UpdatePhyTask extends GattTask {
 	private final int mRxPhy;
 	private final int mPhyOptions;
 	private final BlePhyValueCallback mCallback;
+	private ResultListener mResultListener;
 
 	public UpdatePhyTask(int txPhy, int rxPhy, int phyOptions, @Nullable BlePhyValueCallback callback) {
 		mTxPhy = txPhy;
@@ -33,4 +34,16 @@ public class UpdatePhyTask extends GattTask {
 	public BlePhyValueCallback getCallback() {
 		return mCallback;
 	}
+
+	public void setResultListener(@Nullable ResultListener listener) {
+		mResultListener = listener;
+	}
+
+	/**
+	 * PHY update done (result listener)
+	 * @param success boolean
+	 */
+	public void notifyResult(boolean success) {
+		if(mResultListener != null) mResultListener.onResult(success);
+	}
 }
@@ -6,36 +6,110 @@ import android.bluetooth.BluetoothGattService;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.Objects;
 import java.util.UUID;
 
+import ovh.karewan.knble.KnBle;
 import ovh.karewan.knble.interfaces.BleWriteCallback;
 
 public class WriteCharaTask extends GattTask {
-	private final UUID mServiceUUID;
-	private final BluetoothGattService mService;
-	private final UUID mCharacteristicUUID;
-	private final BluetoothGattCharacteristic mCharacteristic;
-	private final byte[] mData;
-	private final boolean mNoResponse;
-	private final BleWriteCallback mCallback;
+	public static final int WRITE_TYPE_AUTO = -1; // Checked against the characteristic properties at execution
+
+	private static final TaskPool<WriteCharaTask> sPool = new TaskPool<>(16);
+	private UUID mServiceUUID;
+	private BluetoothGattService mService;
+	private UUID mCharacteristicUUID;
+	private BluetoothGattCharacteristic mCharacteristic;
+	private byte[] mData;
+	private boolean mNoResponse;
+	private int mWriteType;
+	private BleWriteCallback mCallback;
+	private BluetoothGattCharacteristic mResolvedCharacteristic;
+	private int mResolvedWriteType;
+	private boolean mPooled;
 
 	public WriteCharaTask(@NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, @NonNull byte[] data, boolean noResponse, @NonNull BleWriteCallback callback) {
-		mServiceUUID = serviceUUID;
-		mService = null;
-		mCharacteristicUUID = characteristicUUID;
-		mCharacteristic = null;
-		mData = data;
-		mNoResponse = noResponse;
-		mCallback = callback;
+		set(serviceUUID, null, characteristicUUID, null, data, noResponse, WRITE_TYPE_AUTO, callback);
 	}
 
 	public WriteCharaTask(@NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, @NonNull byte[] data, boolean noResponse, @NonNull BleWriteCallback callback) {
-		mServiceUUID = null;
+		set(null, service, null, characteristic, data, noResponse, WRITE_TYPE_AUTO, callback);
+	}
+
+	/**
+	 * Class constructor (the characteristic and the write type are already validated, see obtain)
+	 * @param service The service
+	 * @param characteristic The characteristic
+	 * @param data The data
+	 * @param writeType BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT or WRITE_TYPE_NO_RESPONSE
+	 * @param callback The callback
+	 */
+	private WriteCharaTask(@NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, @NonNull byte[] data, int writeType, @NonNull BleWriteCallback callback) {
+		set(null, service, null, characteristic, data, writeType == BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE, writeType, callback);
+	}
+
+	/**
+	 * Obtain a task (recycled if KnBle.POOL_TASKS is enabled)
+	 * @param serviceUUID The service UUID
+	 * @param characteristicUUID The characteristic UUID
+	 * @param data The data
+	 * @param noResponse Write without response
+	 * @param callback The callback
+	 * @return WriteCharaTask
+	 */
+	@NonNull
+	public static WriteCharaTask obtain(@NonNull UUID serviceUUID, @NonNull UUID characteristicUUID, @NonNull byte[] data, boolean noResponse, @NonNull BleWriteCallback callback) {
+		WriteCharaTask task = sPool.acquire();
+		if(task == null) task = new WriteCharaTask(serviceUUID, characteristicUUID, data, noResponse, callback);
+		else task.set(serviceUUID, null, characteristicUUID, null, data, noResponse, WRITE_TYPE_AUTO, callback);
+		task.mPooled = KnBle.POOL_TASKS;
+		return task;
+	}
+
+	/**
+	 * Obtain a task (recycled if KnBle.POOL_TASKS is enabled)
+	 * @param service The service
+	 * @param characteristic The characteristic
+	 * @param data The data
+	 * @param noResponse Write without response
+	 * @param callback The callback
+	 * @return WriteCharaTask
+	 */
+	@NonNull
+	public static WriteCharaTask obtain(@NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, @NonNull byte[] data, boolean noResponse, @NonNull BleWriteCallback callback) {
+		WriteCharaTask task = sPool.acquire();
+		if(task == null) task = new WriteCharaTask(service, characteristic, data, noResponse, callback);
+		else task.set(null, service, null, characteristic, data, noResponse, WRITE_TYPE_AUTO, callback);
+		task.mPooled = KnBle.POOL_TASKS;
+		return task;
+	}
+
+	/**
+	 * Obtain a task (recycled if KnBle.POOL_TASKS is enabled, the characteristic and the write type are already validated, any other write type fails)
+	 * @param service The service
+	 * @param characteristic The characteristic
+	 * @param data The data
+	 * @param writeType BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT or WRITE_TYPE_NO_RESPONSE
+	 * @param callback The callback
+	 * @return WriteCharaTask
+	 */
+	@NonNull
+	public static WriteCharaTask obtain(@NonNull BluetoothGattService service, @NonNull BluetoothGattCharacteristic characteristic, @NonNull byte[] data, int writeType, @NonNull BleWriteCallback callback) {
+		WriteCharaTask task = sPool.acquire();
+		if(task == null) task = new WriteCharaTask(service, characteristic, data, writeType, callback);
+		else task.set(null, service, null, characteristic, data, writeType == BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE, writeType, callback);
+		task.mPooled = KnBle.POOL_TASKS;
+		return task;
+	}
+
+	private void set(@Nullable UUID serviceUUID, @Nullable BluetoothGattService service, @Nullable UUID characteristicUUID, @Nullable BluetoothGattCharacteristic characteristic, @NonNull byte[] data, boolean noResponse, int writeType, @NonNull BleWriteCallback callback) {
+		mServiceUUID = serviceUUID;
 		mService = service;
-		mCharacteristicUUID = null;
+		mCharacteristicUUID = characteristicUUID;
 		mCharacteristic = characteristic;
 		mData = data;
 		mNoResponse = noResponse;
+		mWriteType = writeType;
 		mCallback = callback;
 	}
 
@@ -68,8 +142,98 @@ public class WriteCharaTask extends GattTask {
 		return mNoResponse;
 	}
 
+	/**
+	 * Get the validated write type
+	 * @return int (WRITE_TYPE_AUTO if not validated)
+	 */
+	public int getWriteType() {
+		return mWriteType;
+	}
+
 	@NonNull
 	public BleWriteCallback getCallback() {
 		return mCallback;
 	}
+
+	/**
+	 * Get the service UUID (from the service if given)
+	 * @return UUID
+	 */
+	@Nullable
+	public UUID resolveServiceUUID() {
+		return mService != null ? mService.getUuid() : mServiceUUID;
+	}
+
+	/**
+	 * Get the characteristic UUID (from the characteristic if given)
+	 * @return UUID
+	 */
+	@Nullable
+	public UUID resolveCharacteristicUUID() {
+		return mCharacteristic != null ? mCharacteristic.getUuid() : mCharacteristicUUID;
+	}
+
+	/**
+	 * Check if the task writes the same characteristic
+	 * @param other The other task
+	 * @return boolean
+	 */
+	public boolean isSameAttribute(@NonNull WriteCharaTask other) {
+		if(mCharacteristic != null && other.mCharacteristic != null) return mCharacteristic == other.mCharacteristic;
+		return Objects.equals(resolveServiceUUID(), other.resolveServiceUUID()) && Objects.equals(resolveCharacteristicUUID(), other.resolveCharacteristicUUID());
+	}
+
+	/**
+	 * Replace the payload of this not yet started task by the one of a newer write
+	 * @param newer The newer write
+	 * @return The superseded callback
+	 */
+	@NonNull
+	public BleWriteCallback merge(@NonNull WriteCharaTask newer) {
+		BleWriteCallback superseded = mCallback;
+		mData = newer.mData;
+		mNoResponse = newer.mNoResponse;
+		mWriteType = mCharacteristic != null && newer.mCharacteristic == mCharacteristic ? newer.mWriteType : WRITE_TYPE_AUTO;
+		mCallback = newer.mCallback;
+		return superseded;
+	}
+
+	/**
+	 * Set the characteristic and write type resolved at execution
+	 * @param characteristic The characteristic
+	 * @param writeType The write type
+	 */
+	public void setResolved(@NonNull BluetoothGattCharacteristic characteristic, int writeType) {
+		mResolvedCharacteristic = characteristic;
+		mResolvedWriteType = writeType;
+	}
+
+	@Nullable
+	public BluetoothGattCharacteristic getResolvedCharacteristic() {
+		return mResolvedCharacteristic;
+	}
+
+	public int getResolvedWriteType() {
+		return mResolvedWriteType;
+	}
+
+	@Override
+	protected void reset() {
+		super.reset();
+		mServiceUUID = null;
+		mService = null;
+		mCharacteristicUUID = null;
+		mCharacteristic = null;
+		mData = null;
+		mCallback = null;
+		mResolvedCharacteristic = null;
+	}
+
+	@Override
+	public void recycle() {
+		if(!mPooled) return;
+		mPooled = false;
+		reset();
+		sPool.release(this);
+	}
 }